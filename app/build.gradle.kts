@@ -55,6 +55,12 @@ android {
         compose = true
         buildConfig = true
     }
+    testOptions {
+        unitTests.all {
+            // Benchmarks only run when asked for: ./gradlew :app:testDebugUnitTest -Pbenchmark
+            it.systemProperty("weatherapp.benchmark", project.hasProperty("benchmark").toString())
+        }
+    }
 }
 
 dependencies {
@@ -19,7 +19,9 @@ import androidx.navigation.compose.*
 import com.example.weatherapp.auth.AuthViewModel
 import com.example.weatherapp.navigation.Screen
 import com.example.weatherapp.screens.*
+import com.example.weatherapp.startup.StartupPipeline
 import com.example.weatherapp.ui.theme.WeatherAppTheme
+import com.example.weatherapp.viewmodel.WeatherViewModel
 
 // App colors
 private val PurplePrimary = Color(0xFF667eea)
@@ -28,6 +30,8 @@ private val PurpleSecondary = Color(0xFF764ba2)
 class MainActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
+        // Location, cache and first fetch run while the splash is showing
+        StartupPipeline.start(this)
         enableEdgeToEdge()
         setContent {
             WeatherAppTheme {
@@ -48,6 +52,10 @@ fun CamWeatherApp() {
     val authViewModel: AuthViewModel = viewModel()
     val authState by authViewModel.uiState.collectAsState()
     
+    // One WeatherViewModel for every tab: a per-destination one would redo the
+    // location fix, first fetch and gazetteer load on each visit
+    val weatherViewModel: WeatherViewModel = viewModel()
+    
     // Saved locations state
     var savedLocations by remember { 
         mutableStateOf(
@@ -120,7 +128,8 @@ fun CamWeatherApp() {
                     },
                     onNavigateToMap = {
                         navController.navigate(Screen.Map.route)
-                    }
+                    },
+                    viewModel = weatherViewModel
                 )
             }
             
@@ -132,7 +141,8 @@ fun CamWeatherApp() {
                     },
                     onNavigateToMap = {
                         navController.navigate(Screen.Map.route)
-                    }
+                    },
+                    viewModel = weatherViewModel
                 )
             }
             
@@ -159,7 +169,8 @@ fun CamWeatherApp() {
                     isGuest = !authState.isLoggedIn,
                     onNavigateToLogin = {
                         navController.navigate(Screen.Login.route)
-                    }
+                    },
+                    weatherViewModel = weatherViewModel
                 )
             }
             
@@ -181,7 +192,8 @@ fun CamWeatherApp() {
                     },
                     onClose = {
                         navController.popBackStack()
-                    }
+                    },
+                    weatherViewModel = weatherViewModel
                 )
             }
             
@@ -293,4 +305,11 @@ data class SavedLocation(
     val lat: Double,
     val lon: Double,
     val isDefault: Boolean = false
-)
\ No newline at end of file
+) {
+    // Identifies the place itself; names aren't unique
+    val key: String get() = keyOf(lat, lon)
+    
+    companion object {
+        fun keyOf(lat: Double, lon: Double): String = "$lat,$lon"
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.weatherapp.api
+
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.util.concurrent.TimeUnit
+
+/**
+ * Per-endpoint connect / read timeouts derived from observed latency
+ * Once an endpoint has enough round trips, its timeout becomes a multiple of its p95,
+ * so a stalled call on a bad link fails (and falls back) in seconds rather than after the
+ * worst-case default. Until then, and as a ceiling, [defaultTimeoutMs] applies.
+ */
+class AdaptiveTimeoutInterceptor(
+    private val telemetry: NetworkTelemetry,
+    private val defaultTimeoutMs: Long = 15_000L,
+    private val minTimeoutMs: Long = 4_000L,
+    private val p95Multiplier: Long = 4
+) : Interceptor {
+
+    fun timeoutMs(endpoint: String): Long {
+        val p95 = telemetry.latencyPercentileMs(endpoint, 0.95) ?: return defaultTimeoutMs
+        return (p95 * p95Multiplier).coerceIn(minTimeoutMs, defaultTimeoutMs)
+    }
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val timeout = timeoutMs(NetworkTelemetry.endpointOf(chain.call())).toInt()
+        return chain
+            .withConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+            .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+            .proceed(chain.request())
+    }
+}
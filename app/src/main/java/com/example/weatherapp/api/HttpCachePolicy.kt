@@ -0,0 +1,100 @@
+package com.example.weatherapp.api
+
+import okhttp3.CacheControl
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * HTTP cache policy for the weather API
+ *
+ * OpenWeatherMap responses don't always carry a usable Cache-Control, so a network
+ * interceptor forces a max-age per endpoint path. ETag / Last-Modified headers are
+ * kept, so once an entry goes stale OkHttp revalidates it with If-None-Match /
+ * If-Modified-Since and a 304 costs headers only.
+ *
+ * Forced refreshes pass a [CacheDirective] that sends Cache-Control: no-cache, since the
+ * forced max-age would otherwise let OkHttp answer them from disk with the old body.
+ */
+object HttpCachePolicy {
+    const val CACHE_DIR_NAME = "http_cache"
+    const val CACHE_MAX_BYTES = 5L * 1024 * 1024 // 5 MB
+
+    // Forced freshness per endpoint, in seconds
+    private val maxAgeByPath = mapOf(
+        "weather" to 10 * 60,        // Current conditions update about every 10 minutes
+        "group" to 10 * 60,          // Current conditions for several cities
+        "forecast" to 30 * 60,       // 3-hour slots
+        "air_pollution" to 30 * 60   // Hourly values
+    )
+
+    fun maxAgeSeconds(path: String): Int? = maxAgeByPath[path.substringAfterLast('/')]
+
+    /**
+     * Cache handling for one API call, passed to [WeatherApiService] as its Cache-Control
+     * header and request tag
+     * [servedFromCache] is set when OkHttp answered from its disk cache without a network
+     * round trip, so the caller can give the quota permit back.
+     */
+    class CacheDirective(forceNetwork: Boolean = false) {
+        val cacheControl: String? = if (forceNetwork) CacheControl.FORCE_NETWORK.toString() else null
+
+        @Volatile
+        var servedFromCache = false
+            internal set
+    }
+
+    /**
+     * Network interceptor: keep the upstream's Cache-Control when it allows caching,
+     * otherwise replace it with the forced max-age for the endpoint
+     */
+    class CacheControlInterceptor : Interceptor {
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val request = chain.request()
+            val response = chain.proceed(request)
+            val maxAge = maxAgeSeconds(request.url.encodedPath) ?: return response
+            if (!response.isSuccessful) return response
+
+            val upstream = response.cacheControl
+            if (upstream.maxAgeSeconds > 0 && !upstream.noStore && !upstream.noCache) {
+                return response
+            }
+            return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=$maxAge")
+                .build()
+        }
+    }
+
+    /**
+     * Application interceptor counting how each response was served
+     */
+    class StatsInterceptor : Interceptor {
+        private val hits = AtomicLong()
+        private val misses = AtomicLong()
+        private val revalidated = AtomicLong()
+
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val response = chain.proceed(chain.request())
+            when {
+                // Served from disk without touching the network
+                response.cacheResponse != null && response.networkResponse == null -> {
+                    hits.incrementAndGet()
+                    chain.request().tag(CacheDirective::class.java)?.servedFromCache = true
+                }
+                // Conditional request, upstream answered 304 Not Modified
+                response.cacheResponse != null -> revalidated.incrementAndGet()
+                else -> misses.incrementAndGet()
+            }
+            return response
+        }
+
+        fun snapshot(): Stats = Stats(hits.get(), misses.get(), revalidated.get())
+    }
+
+    data class Stats(
+        val hits: Long,
+        val misses: Long,
+        val revalidated: Long
+    )
+}
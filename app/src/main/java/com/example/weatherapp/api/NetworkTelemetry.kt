@@ -0,0 +1,236 @@
+package com.example.weatherapp.api
+
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.EventListener
+import okhttp3.Handshake
+import okhttp3.Interceptor
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.logging.HttpLoggingInterceptor
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Structured, allocation-light network telemetry
+ *
+ * [interceptor] records per-endpoint status codes and failures for every call the app makes,
+ * and a latency histogram of the ones that went to the network. [eventListenerFactory] adds what only the
+ * connection layer sees: bytes received, connection reuse and DNS / TCP / TLS timings.
+ * Everything is counters, so recording costs a few atomic increments per call.
+ */
+class NetworkTelemetry {
+    companion object {
+        // Upper bounds of the latency histogram buckets, the last bucket is open-ended
+        val LATENCY_BOUNDS_MS = longArrayOf(25, 50, 100, 200, 400, 800, 1_600, 3_200, 6_400, 12_800)
+
+        fun endpointOf(call: Call): String = call.request().url.encodedPath.substringAfterLast('/')
+
+        /**
+         * Latency at percentile [p] (0..1) of a histogram, as the upper bound of the bucket it falls in
+         */
+        private fun percentileOf(buckets: List<Long>, p: Double, maxMs: Long): Long? {
+            val total = buckets.sum()
+            if (total == 0L) return null
+            val target = kotlin.math.ceil(total * p).toLong().coerceAtLeast(1)
+            var seen = 0L
+            buckets.forEachIndexed { i, count ->
+                seen += count
+                if (seen >= target) return LATENCY_BOUNDS_MS.getOrNull(i) ?: maxMs
+            }
+            return maxMs
+        }
+    }
+
+    /**
+     * Per-endpoint counters
+     */
+    data class EndpointStats(
+        val requests: Long,
+        val failures: Long,                 // IOException before any response
+        val statusCodes: Map<Int, Long>,
+        val latencyBuckets: List<Long>,     // Network round trips per LATENCY_BOUNDS_MS bucket, plus overflow
+        val averageLatencyMs: Long,
+        val maxLatencyMs: Long,
+        val bytesReceived: Long             // Response bodies read from the network (compressed)
+    ) {
+        fun percentileMs(p: Double): Long? = percentileOf(latencyBuckets, p, maxLatencyMs)
+    }
+
+    data class Snapshot(
+        val endpoints: Map<String, EndpointStats>,
+        val connectionsAcquired: Long,
+        val connectionsReused: Long,
+        val dnsLookups: Long,
+        val averageDnsMs: Long,
+        val connects: Long,
+        val averageConnectMs: Long,         // TCP + TLS
+        val tlsHandshakes: Long,
+        val averageTlsMs: Long
+    )
+
+    private class EndpointCounters {
+        val requests = AtomicLong()
+        val failures = AtomicLong()
+        val statusCodes = ConcurrentHashMap<Int, AtomicLong>()
+        val latencyBuckets = AtomicLongArray(LATENCY_BOUNDS_MS.size + 1)
+        val latencySumMs = AtomicLong()
+        val maxLatencyMs = AtomicLong()
+        val bytesReceived = AtomicLong()
+
+        fun recordLatency(ms: Long) {
+            var bucket = LATENCY_BOUNDS_MS.indexOfFirst { ms <= it }
+            if (bucket < 0) bucket = LATENCY_BOUNDS_MS.size
+            latencyBuckets.incrementAndGet(bucket)
+            latencySumMs.addAndGet(ms)
+            maxLatencyMs.accumulateAndGet(ms) { a, b -> maxOf(a, b) }
+        }
+
+        fun buckets(): List<Long> = List(latencyBuckets.length()) { latencyBuckets.get(it) }
+
+        fun snapshot(): EndpointStats {
+            val buckets = buckets()
+            val samples = buckets.sum()
+            return EndpointStats(
+                requests = requests.get(),
+                failures = failures.get(),
+                statusCodes = statusCodes.mapValues { it.value.get() },
+                latencyBuckets = buckets,
+                averageLatencyMs = if (samples > 0) latencySumMs.get() / samples else 0,
+                maxLatencyMs = maxLatencyMs.get(),
+                bytesReceived = bytesReceived.get()
+            )
+        }
+    }
+
+    private val endpoints = ConcurrentHashMap<String, EndpointCounters>()
+    private val connectionsAcquired = AtomicLong()
+    private val connectionsReused = AtomicLong()
+    private val dnsLookups = AtomicLong()
+    private val dnsTotalMs = AtomicLong()
+    private val connects = AtomicLong()
+    private val connectTotalMs = AtomicLong()
+    private val tlsHandshakes = AtomicLong()
+    private val tlsTotalMs = AtomicLong()
+
+    private fun countersFor(endpoint: String) = endpoints.getOrPut(endpoint) { EndpointCounters() }
+
+    /**
+     * Observed network latency of [endpoint] at percentile [p], or null until it has [minSamples] round trips
+     */
+    fun latencyPercentileMs(endpoint: String, p: Double, minSamples: Int = 20): Long? {
+        val counters = endpoints[endpoint] ?: return null
+        val buckets = counters.buckets()
+        if (buckets.sum() < minSamples) return null
+        return percentileOf(buckets, p, counters.maxLatencyMs.get())
+    }
+
+    /**
+     * Application interceptor: status code and failures per endpoint, latency of network round trips
+     */
+    val interceptor: Interceptor = Interceptor { chain ->
+        val counters = countersFor(endpointOf(chain.call()))
+        val start = System.nanoTime()
+        val response = try {
+            chain.proceed(chain.request())
+        } catch (e: IOException) {
+            counters.requests.incrementAndGet()
+            counters.failures.incrementAndGet()
+            throw e
+        }
+        counters.requests.incrementAndGet()
+        // HTTP cache hits would drag the percentiles the timeouts are derived from towards zero
+        if (response.networkResponse != null) {
+            counters.recordLatency((System.nanoTime() - start) / 1_000_000)
+        }
+        counters.statusCodes.getOrPut(response.code) { AtomicLong() }.incrementAndGet()
+        response
+    }
+
+    val eventListenerFactory: EventListener.Factory = object : EventListener.Factory {
+        override fun create(call: Call): EventListener = CallListener()
+    }
+
+    fun snapshot(): Snapshot = Snapshot(
+        endpoints = endpoints.mapValues { it.value.snapshot() },
+        connectionsAcquired = connectionsAcquired.get(),
+        connectionsReused = connectionsReused.get(),
+        dnsLookups = dnsLookups.get(),
+        averageDnsMs = average(dnsTotalMs, dnsLookups),
+        connects = connects.get(),
+        averageConnectMs = average(connectTotalMs, connects),
+        tlsHandshakes = tlsHandshakes.get(),
+        averageTlsMs = average(tlsTotalMs, tlsHandshakes)
+    )
+
+    private fun average(totalMs: AtomicLong, count: AtomicLong): Long =
+        count.get().let { if (it > 0) totalMs.get() / it else 0 }
+
+    /**
+     * One per call, so the start timestamps need no synchronisation
+     */
+    private inner class CallListener : EventListener() {
+        private var dnsStart = 0L
+        private var connectStart = 0L
+        private var tlsStart = 0L
+        private var connected = false
+
+        override fun dnsStart(call: Call, domainName: String) {
+            dnsStart = System.nanoTime()
+        }
+
+        override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>) {
+            dnsLookups.incrementAndGet()
+            dnsTotalMs.addAndGet((System.nanoTime() - dnsStart) / 1_000_000)
+        }
+
+        override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+            connectStart = System.nanoTime()
+            connected = true
+        }
+
+        override fun connectEnd(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?) {
+            connects.incrementAndGet()
+            connectTotalMs.addAndGet((System.nanoTime() - connectStart) / 1_000_000)
+        }
+
+        override fun secureConnectStart(call: Call) {
+            tlsStart = System.nanoTime()
+        }
+
+        override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+            tlsHandshakes.incrementAndGet()
+            tlsTotalMs.addAndGet((System.nanoTime() - tlsStart) / 1_000_000)
+        }
+
+        override fun connectionAcquired(call: Call, connection: Connection) {
+            connectionsAcquired.incrementAndGet()
+            // No connect on this call means the pool handed over a warm connection
+            if (!connected) connectionsReused.incrementAndGet()
+        }
+
+        override fun responseBodyEnd(call: Call, byteCount: Long) {
+            countersFor(endpointOf(call)).bytesReceived.addAndGet(byteCount)
+        }
+    }
+
+    /**
+     * Debug-only request logging: one line per call, full bodies for one call in [sampleEvery]
+     * Full-body logging buffers the whole response, so it stays off the common path.
+     */
+    class SampledLoggingInterceptor(private val sampleEvery: Int = 10) : Interceptor {
+        private val basic = HttpLoggingInterceptor().apply { level = HttpLoggingInterceptor.Level.BASIC }
+        private val body = HttpLoggingInterceptor().apply { level = HttpLoggingInterceptor.Level.BODY }
+        private val calls = AtomicLong()
+
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val logger = if (calls.getAndIncrement() % sampleEvery == 0L) body else basic
+            return logger.intercept(chain)
+        }
+    }
+}
@@ -1,34 +1,129 @@
 package com.example.weatherapp.api
 
+import android.content.Context
+import com.example.weatherapp.BuildConfig
+import com.google.gson.GsonBuilder
+import okhttp3.Cache
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
 import okhttp3.OkHttpClient
-import okhttp3.logging.HttpLoggingInterceptor
+import okhttp3.Request
+import okhttp3.Response
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.io.File
+import java.io.IOException
 import java.util.concurrent.TimeUnit
 
+/**
+ * The app's only HTTP stack: one OkHttpClient, so every screen shares one connection
+ * pool and one TLS session to the API host
+ */
 object RetrofitClient {
     // Always use real API URL - app falls back to mock data if network fails
     private const val BASE_URL = "https://api.openweathermap.org/data/2.5/"
     
-    private val loggingInterceptor = HttpLoggingInterceptor().apply {
-        level = HttpLoggingInterceptor.Level.BODY
+    // Everything goes to one host; a refresh is 3 parallel calls, a few screens may overlap
+    private const val MAX_REQUESTS = 16
+    private const val MAX_REQUESTS_PER_HOST = 6
+    
+    // Keep idle connections longer than OkHttp's 5 min default: refreshes are minutes apart,
+    // and a warm connection saves the DNS + TCP + TLS handshake on the next one
+    private const val MAX_IDLE_CONNECTIONS = 4
+    private const val KEEP_ALIVE_MINUTES = 10L
+    
+    private val telemetry = NetworkTelemetry()
+    
+    // Timeouts follow each endpoint's observed p95, 15 s until there is enough data
+    private val adaptiveTimeouts = AdaptiveTimeoutInterceptor(telemetry, defaultTimeoutMs = 15_000L)
+    
+    private val cacheStats = HttpCachePolicy.StatsInterceptor()
+    
+    @Volatile
+    private var cacheDir: File? = null
+    
+    /**
+     * Enable the disk HTTP cache - call before the first request (WeatherRepository does)
+     */
+    fun init(context: Context) {
+        if (cacheDir == null) {
+            cacheDir = File(context.applicationContext.cacheDir, HttpCachePolicy.CACHE_DIR_NAME)
+        }
+    }
+    
+    private val okHttpClient: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .apply {
+                cacheDir?.let { cache(Cache(it, HttpCachePolicy.CACHE_MAX_BYTES)) }
+            }
+            .addInterceptor(telemetry.interceptor)
+            .addInterceptor(cacheStats)
+            .addInterceptor(adaptiveTimeouts)
+            .apply {
+                // Full bodies are buffered to be logged, keep that out of release builds
+                if (BuildConfig.DEBUG) addInterceptor(NetworkTelemetry.SampledLoggingInterceptor())
+            }
+            .eventListenerFactory(telemetry.eventListenerFactory)
+            .addNetworkInterceptor(HttpCachePolicy.CacheControlInterceptor())
+            .connectionPool(ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .dispatcher(Dispatcher().apply {
+                maxRequests = MAX_REQUESTS
+                maxRequestsPerHost = MAX_REQUESTS_PER_HOST
+            })
+            .retryOnConnectionFailure(true)
+            .connectTimeout(15, TimeUnit.SECONDS)  // Reduced timeout for faster fallback
+            .readTimeout(15, TimeUnit.SECONDS)
+            .writeTimeout(15, TimeUnit.SECONDS)
+            .build()
     }
     
-    private val okHttpClient = OkHttpClient.Builder()
-        .addInterceptor(loggingInterceptor)
-        .connectTimeout(15, TimeUnit.SECONDS)  // Reduced timeout for faster fallback
-        .readTimeout(15, TimeUnit.SECONDS)
-        .build()
+    // Streaming adapters for the response DTOs instead of reflective decoding
+    private val gson = GsonBuilder()
+        .registerTypeAdapterFactory(WeatherJsonAdapters)
+        .create()
     
     val retrofit: Retrofit by lazy {
         Retrofit.Builder()
             .baseUrl(BASE_URL)
             .client(okHttpClient)
-            .addConverterFactory(GsonConverterFactory.create())
+            .addConverterFactory(GsonConverterFactory.create(gson))
             .build()
     }
     
     val weatherApiService: WeatherApiService by lazy {
         retrofit.create(WeatherApiService::class.java)
     }
+    
+    /**
+     * Open [connections] connections to the API host ahead of the first real call
+     * A HEAD on the base URL does the DNS lookup, TCP connect and TLS handshake and leaves
+     * the connection in the pool, so the first refresh (3 parallel calls) starts warm.
+     * Carries no API key, so it costs no quota.
+     */
+    fun preconnect(connections: Int = 3) {
+        val request = Request.Builder().url(BASE_URL).head().build()
+        repeat(connections.coerceAtMost(MAX_IDLE_CONNECTIONS)) {
+            okHttpClient.newCall(request).enqueue(object : Callback {
+                override fun onResponse(call: Call, response: Response) = response.close()
+                override fun onFailure(call: Call, e: IOException) = Unit
+            })
+        }
+    }
+    
+    /**
+     * HTTP cache hit / miss / revalidation counters since process start
+     */
+    fun httpCacheStats(): HttpCachePolicy.Stats = cacheStats.snapshot()
+    
+    /**
+     * Latency, status codes, bytes and connection reuse since process start
+     */
+    fun networkStats(): NetworkTelemetry.Snapshot = telemetry.snapshot()
+    
+    /**
+     * Observed p95 network latency of an endpoint ("weather", "forecast", ...), null until known
+     */
+    fun latencyP95Ms(endpoint: String): Long? = telemetry.latencyPercentileMs(endpoint, 0.95)
 }
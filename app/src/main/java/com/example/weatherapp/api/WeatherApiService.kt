@@ -2,10 +2,17 @@ package com.example.weatherapp.api
 
 import com.example.weatherapp.models.api.AirPollutionResponse
 import com.example.weatherapp.models.api.ForecastResponse
+import com.example.weatherapp.models.api.GroupWeatherResponse
 import com.example.weatherapp.models.api.WeatherResponse
 import retrofit2.http.GET
+import retrofit2.http.Header
 import retrofit2.http.Query
+import retrofit2.http.Tag
 
+/**
+ * Every call takes an optional Cache-Control header and [HttpCachePolicy.CacheDirective]
+ * tag, so the repository can force the network and tell HTTP cache hits from real calls
+ */
 interface WeatherApiService {
     /**
      * Get current weather data
@@ -16,7 +23,9 @@ interface WeatherApiService {
     suspend fun getCurrentWeather(
         @Query("q") city: String,
         @Query("appid") apiKey: String,
-        @Query("units") units: String = "metric"
+        @Query("units") units: String = "metric",
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
     ): WeatherResponse
     
     @GET("weather")
@@ -24,9 +33,24 @@ interface WeatherApiService {
         @Query("lat") lat: Double,
         @Query("lon") lon: Double,
         @Query("appid") apiKey: String,
-        @Query("units") units: String = "metric"
+        @Query("units") units: String = "metric",
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
     ): WeatherResponse
     
+    /**
+     * Get current weather for up to 20 cities in one call
+     * @param ids comma-separated OpenWeatherMap city IDs
+     */
+    @GET("group")
+    suspend fun getWeatherForCityIds(
+        @Query("id") ids: String,
+        @Query("appid") apiKey: String,
+        @Query("units") units: String = "metric",
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
+    ): GroupWeatherResponse
+    
     /**
      * Get 5-day/3-hour forecast data
      * Free tier: Yes (40 timestamps = 5 days x 8 per day)
@@ -36,7 +60,9 @@ interface WeatherApiService {
     suspend fun getForecast(
         @Query("q") city: String,
         @Query("appid") apiKey: String,
-        @Query("units") units: String = "metric"
+        @Query("units") units: String = "metric",
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
     ): ForecastResponse
     
     @GET("forecast")
@@ -44,7 +70,9 @@ interface WeatherApiService {
         @Query("lat") lat: Double,
         @Query("lon") lon: Double,
         @Query("appid") apiKey: String,
-        @Query("units") units: String = "metric"
+        @Query("units") units: String = "metric",
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
     ): ForecastResponse
     
     /**
@@ -56,6 +84,8 @@ interface WeatherApiService {
     suspend fun getAirPollution(
         @Query("lat") lat: Double,
         @Query("lon") lon: Double,
-        @Query("appid") apiKey: String
+        @Query("appid") apiKey: String,
+        @Header("Cache-Control") cacheControl: String? = null,
+        @Tag directive: HttpCachePolicy.CacheDirective? = null
     ): AirPollutionResponse
 }
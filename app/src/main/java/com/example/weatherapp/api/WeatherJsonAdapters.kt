@@ -0,0 +1,470 @@
+package com.example.weatherapp.api
+
+import com.example.weatherapp.models.api.*
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+
+/**
+ * Hand-written streaming Gson adapters for the response DTOs
+ *
+ * Gson's reflective adapter builds its field tables on first use - which lands on the first
+ * request after cold start - and goes through reflection for every field of every forecast
+ * item. These read the response body token by token and call the DTO constructors directly.
+ * Fields the app never shows (sea_level, grnd_level, co, no, so2, nh3, ...) are skipped
+ * without being materialised. Nothing in the app serialises the DTOs, so writing just falls
+ * back to the reflective adapter.
+ *
+ * Values the screen shows as measurements (coordinates, temperatures, humidity, pressure,
+ * wind speed) are required: a response missing one fails to decode instead of being cached
+ * and shown as 0 °C at (0, 0).
+ */
+object WeatherJsonAdapters : TypeAdapterFactory {
+
+    @Suppress("UNCHECKED_CAST")
+    override fun <T> create(gson: Gson, type: TypeToken<T>): TypeAdapter<T>? {
+        val decode: (JsonReader) -> Any = when (type.rawType) {
+            WeatherResponse::class.java -> ::readWeatherResponse
+            ForecastResponse::class.java -> ::readForecastResponse
+            AirPollutionResponse::class.java -> ::readAirPollutionResponse
+            GroupWeatherResponse::class.java -> ::readGroupWeatherResponse
+            else -> return null
+        }
+        return StreamingAdapter(gson, type, decode as (JsonReader) -> T)
+    }
+
+    private class StreamingAdapter<T>(
+        private val gson: Gson,
+        private val type: TypeToken<T>,
+        private val decode: (JsonReader) -> T
+    ) : TypeAdapter<T>() {
+        // Only built if something actually serialises a DTO
+        private val writer: TypeAdapter<T> by lazy { gson.getDelegateAdapter(WeatherJsonAdapters, type) }
+
+        override fun write(out: JsonWriter, value: T) = writer.write(out, value)
+
+        override fun read(reader: JsonReader): T? {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull()
+                return null
+            }
+            return decode(reader)
+        }
+    }
+
+    // ---- Current weather ----
+
+    fun readWeatherResponse(reader: JsonReader): WeatherResponse {
+        var coord: Coord? = null
+        var weather: List<Weather> = emptyList()
+        var main: Main? = null
+        var wind: Wind? = null
+        var clouds: Clouds? = null
+        var sys: Sys? = null
+        var name: String? = null
+        var dt: Long? = null
+        var visibility: Int? = 10000
+        var timezone: Int? = 0
+        var id: Int? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "coord" -> coord = readCoord(reader)
+                "weather" -> weather = readWeatherList(reader)
+                "main" -> main = readMain(reader)
+                "wind" -> wind = readWind(reader)
+                "clouds" -> clouds = readClouds(reader)
+                "sys" -> sys = readSys(reader)
+                "name" -> name = reader.nextString()
+                "dt" -> dt = reader.nextLong()
+                "visibility" -> visibility = nextIntOrNull(reader)
+                "timezone" -> timezone = nextIntOrNull(reader)
+                "id" -> id = nextIntOrNull(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return WeatherResponse(
+            coord = required(coord, "coord"),
+            weather = weather,
+            main = required(main, "main"),
+            wind = required(wind, "wind"),
+            clouds = required(clouds, "clouds"),
+            sys = required(sys, "sys"),
+            name = required(name, "name"),
+            dt = required(dt, "dt"),
+            visibility = visibility,
+            timezone = timezone,
+            id = id
+        )
+    }
+
+    fun readGroupWeatherResponse(reader: JsonReader): GroupWeatherResponse {
+        var cnt = 0
+        var list: List<WeatherResponse> = emptyList()
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "cnt" -> cnt = reader.nextInt()
+                "list" -> list = readList(reader, ::readWeatherResponse)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return GroupWeatherResponse(cnt = cnt, list = list)
+    }
+
+    private fun readSys(reader: JsonReader): Sys {
+        var country = ""
+        var sunrise = 0L
+        var sunset = 0L
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "country" -> country = nextStringOrNull(reader) ?: ""
+                "sunrise" -> sunrise = reader.nextLong()
+                "sunset" -> sunset = reader.nextLong()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Sys(country = country, sunrise = sunrise, sunset = sunset)
+    }
+
+    // ---- Forecast ----
+
+    fun readForecastResponse(reader: JsonReader): ForecastResponse {
+        var cod = ""
+        var message = 0
+        var cnt = 0
+        var list: List<ForecastItem> = emptyList()
+        var city: City? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "cod" -> cod = reader.nextString()
+                "message" -> message = reader.nextInt()
+                "cnt" -> cnt = reader.nextInt()
+                "list" -> list = readList(reader, ::readForecastItem)
+                "city" -> city = readCity(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return ForecastResponse(cod = cod, message = message, cnt = cnt, list = list, city = required(city, "city"))
+    }
+
+    private fun readForecastItem(reader: JsonReader): ForecastItem {
+        var dt: Long? = null
+        var main: Main? = null
+        var weather: List<Weather> = emptyList()
+        var clouds: Clouds? = null
+        var wind: Wind? = null
+        var visibility: Int? = 10000
+        var pop: Double? = 0.0
+        var rain: Rain? = null
+        var snow: Snow? = null
+        var pod = "d"
+        var dtTxt: String? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "dt" -> dt = reader.nextLong()
+                "main" -> main = readMain(reader)
+                "weather" -> weather = readWeatherList(reader)
+                "clouds" -> clouds = readClouds(reader)
+                "wind" -> wind = readWind(reader)
+                "visibility" -> visibility = nextIntOrNull(reader)
+                "pop" -> pop = nextDoubleOrNull(reader)
+                "rain" -> rain = readThreeHourVolume(reader)?.let { Rain(`3h` = it) }
+                "snow" -> snow = readThreeHourVolume(reader)?.let { Snow(`3h` = it) }
+                "sys" -> pod = readPartOfDay(reader) ?: pod
+                "dt_txt" -> dtTxt = reader.nextString()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return ForecastItem(
+            dt = required(dt, "dt"),
+            main = required(main, "main"),
+            weather = weather,
+            clouds = required(clouds, "clouds"),
+            wind = required(wind, "wind"),
+            visibility = visibility,
+            pop = pop,
+            rain = rain,
+            snow = snow,
+            sys = ForecastSys(pod = pod),
+            dt_txt = required(dtTxt, "dt_txt")
+        )
+    }
+
+    private fun readThreeHourVolume(reader: JsonReader): Double? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        var volume: Double? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            if (reader.nextName() == "3h") volume = nextDoubleOrNull(reader) else reader.skipValue()
+        }
+        reader.endObject()
+        return volume
+    }
+
+    private fun readPartOfDay(reader: JsonReader): String? {
+        var pod: String? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            if (reader.nextName() == "pod") pod = nextStringOrNull(reader) else reader.skipValue()
+        }
+        reader.endObject()
+        return pod
+    }
+
+    private fun readCity(reader: JsonReader): City {
+        var id = 0
+        var name = ""
+        var coord: Coord? = null
+        var country = ""
+        var population: Int? = 0
+        var timezone = 0
+        var sunrise = 0L
+        var sunset = 0L
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "id" -> id = reader.nextInt()
+                "name" -> name = nextStringOrNull(reader) ?: ""
+                "coord" -> coord = readCoord(reader)
+                "country" -> country = nextStringOrNull(reader) ?: ""
+                "population" -> population = nextIntOrNull(reader)
+                "timezone" -> timezone = reader.nextInt()
+                "sunrise" -> sunrise = reader.nextLong()
+                "sunset" -> sunset = reader.nextLong()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return City(
+            id = id,
+            name = name,
+            coord = required(coord, "city.coord"),
+            country = country,
+            population = population,
+            timezone = timezone,
+            sunrise = sunrise,
+            sunset = sunset
+        )
+    }
+
+    // ---- Air pollution ----
+
+    fun readAirPollutionResponse(reader: JsonReader): AirPollutionResponse {
+        var coord: Coord? = null
+        var list: List<AirPollutionItem> = emptyList()
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "coord" -> coord = readCoord(reader)
+                "list" -> list = readList(reader, ::readAirPollutionItem)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return AirPollutionResponse(coord = required(coord, "coord"), list = list)
+    }
+
+    private fun readAirPollutionItem(reader: JsonReader): AirPollutionItem {
+        var dt = 0L
+        var aqi: Int? = null
+        var components: AirComponents? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "dt" -> dt = reader.nextLong()
+                "main" -> {
+                    reader.beginObject()
+                    while (reader.hasNext()) {
+                        if (reader.nextName() == "aqi") aqi = reader.nextInt() else reader.skipValue()
+                    }
+                    reader.endObject()
+                }
+                "components" -> components = readAirComponents(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return AirPollutionItem(
+            dt = dt,
+            main = AirQualityMain(aqi = required(aqi, "main.aqi")),
+            components = required(components, "components")
+        )
+    }
+
+    private fun readAirComponents(reader: JsonReader): AirComponents {
+        var no2 = 0.0
+        var o3 = 0.0
+        var pm25 = 0.0
+        var pm10 = 0.0
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "no2" -> no2 = reader.nextDouble()
+                "o3" -> o3 = reader.nextDouble()
+                "pm2_5" -> pm25 = reader.nextDouble()
+                "pm10" -> pm10 = reader.nextDouble()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return AirComponents(no2 = no2, o3 = o3, pm2_5 = pm25, pm10 = pm10)
+    }
+
+    // ---- Shared pieces ----
+
+    private fun readCoord(reader: JsonReader): Coord {
+        var lon: Double? = null
+        var lat: Double? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "lon" -> lon = reader.nextDouble()
+                "lat" -> lat = reader.nextDouble()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Coord(lon = required(lon, "coord.lon"), lat = required(lat, "coord.lat"))
+    }
+
+    private fun readWeatherList(reader: JsonReader): List<Weather> = readList(reader) {
+        var id = 0
+        var main = ""
+        var description = ""
+        var icon = ""
+        it.beginObject()
+        while (it.hasNext()) {
+            when (it.nextName()) {
+                "id" -> id = it.nextInt()
+                "main" -> main = it.nextString()
+                "description" -> description = it.nextString()
+                "icon" -> icon = it.nextString()
+                else -> it.skipValue()
+            }
+        }
+        it.endObject()
+        Weather(id = id, main = main, description = description, icon = icon)
+    }
+
+    // sea_level / grnd_level are never displayed and are skipped
+    private fun readMain(reader: JsonReader): Main {
+        var temp: Double? = null
+        var feelsLike: Double? = null
+        var tempMin: Double? = null
+        var tempMax: Double? = null
+        var pressure: Int? = null
+        var humidity: Int? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "temp" -> temp = reader.nextDouble()
+                "feels_like" -> feelsLike = reader.nextDouble()
+                "temp_min" -> tempMin = reader.nextDouble()
+                "temp_max" -> tempMax = reader.nextDouble()
+                "pressure" -> pressure = reader.nextInt()
+                "humidity" -> humidity = reader.nextInt()
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Main(
+            temp = required(temp, "main.temp"),
+            feels_like = required(feelsLike, "main.feels_like"),
+            temp_min = required(tempMin, "main.temp_min"),
+            temp_max = required(tempMax, "main.temp_max"),
+            pressure = required(pressure, "main.pressure"),
+            humidity = required(humidity, "main.humidity")
+        )
+    }
+
+    private fun readWind(reader: JsonReader): Wind {
+        var speed: Double? = null
+        var deg = 0  // Left out in calm conditions
+        var gust: Double? = null
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "speed" -> speed = reader.nextDouble()
+                "deg" -> deg = reader.nextInt()
+                "gust" -> gust = nextDoubleOrNull(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+        return Wind(speed = required(speed, "wind.speed"), deg = deg, gust = gust)
+    }
+
+    private fun readClouds(reader: JsonReader): Clouds {
+        var all = 0
+        reader.beginObject()
+        while (reader.hasNext()) {
+            if (reader.nextName() == "all") all = reader.nextInt() else reader.skipValue()
+        }
+        reader.endObject()
+        return Clouds(all = all)
+    }
+
+    private inline fun <T> readList(reader: JsonReader, readItem: (JsonReader) -> T): List<T> {
+        val list = ArrayList<T>()
+        reader.beginArray()
+        while (reader.hasNext()) list.add(readItem(reader))
+        reader.endArray()
+        return list
+    }
+
+    private fun nextIntOrNull(reader: JsonReader): Int? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        return reader.nextInt()
+    }
+
+    private fun nextDoubleOrNull(reader: JsonReader): Double? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        return reader.nextDouble()
+    }
+
+    private fun nextStringOrNull(reader: JsonReader): String? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+        return reader.nextString()
+    }
+
+    private fun <T> required(value: T?, name: String): T =
+        value ?: throw JsonParseException("Missing required field '$name'")
+}
@@ -0,0 +1,37 @@
+package com.example.weatherapp.cache
+
+import com.example.weatherapp.models.api.AirPollutionResponse
+import com.example.weatherapp.models.api.ForecastResponse
+import com.example.weatherapp.models.api.WeatherResponse
+
+/**
+ * Per-endpoint expiry derived from the provider's update cadence
+ * - Current weather (/weather): new observation about every 10 minutes after its dt
+ * - Forecast (/forecast): 3-hour slots, valid until the next slot starts
+ * - Air pollution (/air_pollution): hourly values, valid until an hour after its dt
+ */
+object CacheExpiryPolicy {
+    // Never re-fetch sooner than this, even if the provider's dt is already old
+    private const val MIN_TTL_MS = 60 * 1000L // 1 minute
+    private const val CURRENT_UPDATE_INTERVAL_MS = 10 * 60 * 1000L // 10 minutes
+    private const val FORECAST_SLOT_MS = 3 * 60 * 60 * 1000L // 3 hours
+    private const val AIR_POLLUTION_UPDATE_INTERVAL_MS = 60 * 60 * 1000L // 1 hour
+
+    fun currentExpiresAt(response: WeatherResponse, fetchedAt: Long): Long =
+        bounded(response.dt * 1000 + CURRENT_UPDATE_INTERVAL_MS, fetchedAt, CURRENT_UPDATE_INTERVAL_MS)
+
+    fun forecastExpiresAt(response: ForecastResponse, fetchedAt: Long): Long {
+        // The forecast is regenerated when the next 3-hour slot begins
+        val nextSlot = response.list.firstOrNull { it.dt * 1000 > fetchedAt }?.let { it.dt * 1000 }
+            ?: (fetchedAt + FORECAST_SLOT_MS)
+        return bounded(nextSlot, fetchedAt, FORECAST_SLOT_MS)
+    }
+
+    fun airPollutionExpiresAt(response: AirPollutionResponse, fetchedAt: Long): Long {
+        val observedAt = response.list.firstOrNull()?.let { it.dt * 1000 } ?: fetchedAt
+        return bounded(observedAt + AIR_POLLUTION_UPDATE_INTERVAL_MS, fetchedAt, AIR_POLLUTION_UPDATE_INTERVAL_MS)
+    }
+
+    private fun bounded(expiresAt: Long, fetchedAt: Long, maxTtlMs: Long): Long =
+        expiresAt.coerceIn(fetchedAt + MIN_TTL_MS, fetchedAt + maxTtlMs)
+}
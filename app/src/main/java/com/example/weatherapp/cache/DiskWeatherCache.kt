@@ -0,0 +1,211 @@
+package com.example.weatherapp.cache
+
+import android.util.Log
+import com.example.weatherapp.models.api.AirPollutionResponse
+import com.example.weatherapp.models.api.ForecastResponse
+import com.example.weatherapp.models.api.WeatherResponse
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+
+/**
+ * Disk tier of [WeatherCache]
+ * Stores one binary record per cache key (see [WeatherCacheCodec]) with its own timestamp.
+ * When the directory grows past [maxBytes] the least recently used files are deleted.
+ */
+class DiskWeatherCache(
+    private val directory: File,
+    private val maxBytes: Long
+) {
+    companion object {
+        private const val TAG = "DiskWeatherCache"
+        private const val FILE_SUFFIX = ".cache"
+    }
+
+    @Synchronized
+    fun put(key: String, entry: CacheEntry) {
+        try {
+            if (!directory.exists()) directory.mkdirs()
+            val file = fileFor(key)
+            val tmp = File(directory, file.name + ".tmp")
+            writeRecord(tmp, key, entry)
+            if (!tmp.renameTo(file)) {
+                file.delete()
+                tmp.renameTo(file)
+            }
+            trimToSize()
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to write cache entry $key: ${e.message}")
+        }
+    }
+
+    @Synchronized
+    fun get(key: String): CacheEntry? {
+        val file = fileFor(key)
+        if (!file.exists()) return null
+
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                val header = WeatherCacheCodec.readHeader(input)
+                // Different key means a hash collision, treat as a miss
+                if (header.key != key) return null
+                val entry = readBody(input, header) ?: return null
+                // Touch so eviction order follows access, not just writes
+                file.setLastModified(System.currentTimeMillis())
+                entry
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Dropping unreadable cache entry $key: ${e.message}")
+            file.delete()
+            null
+        }
+    }
+
+    /**
+     * Read only the header (key, timestamp) of the entry without decoding its body
+     */
+    @Synchronized
+    fun peek(key: String): WeatherCacheCodec.Header? {
+        val file = fileFor(key)
+        if (!file.exists()) return null
+        return readHeader(file)?.takeIf { it.key == key }
+    }
+
+    /**
+     * Keys of the most recently used entries, newest first (reads headers only)
+     */
+    @Synchronized
+    fun recentKeys(limit: Int): List<String> {
+        val files = directory.listFiles { f -> f.name.endsWith(FILE_SUFFIX) } ?: return emptyList()
+        return files.sortedByDescending { it.lastModified() }
+            .asSequence()
+            .mapNotNull { readHeader(it)?.key }
+            .take(limit)
+            .toList()
+    }
+
+    /**
+     * Headers of every entry on disk (reads headers only)
+     */
+    @Synchronized
+    fun headers(): List<WeatherCacheCodec.Header> {
+        val files = directory.listFiles { f -> f.name.endsWith(FILE_SUFFIX) } ?: return emptyList()
+        return files.mapNotNull { readHeader(it) }
+    }
+
+    @Synchronized
+    fun remove(key: String) {
+        fileFor(key).delete()
+    }
+
+    @Synchronized
+    fun clear() {
+        directory.listFiles()?.forEach { it.delete() }
+    }
+
+    /**
+     * Delete least recently used entries until the total size fits in [maxBytes]
+     */
+    private fun trimToSize() {
+        val files = directory.listFiles { f -> f.name.endsWith(FILE_SUFFIX) } ?: return
+        var total = files.sumOf { it.length() }
+        if (total <= maxBytes) return
+
+        for (file in files.sortedBy { it.lastModified() }) {
+            if (total <= maxBytes) break
+            total -= file.length()
+            file.delete()
+        }
+    }
+
+    private fun writeRecord(file: File, key: String, entry: CacheEntry) {
+        val bodyBytes = encode { out ->
+            writePart(out, WeatherCacheCodec.SECTION_CURRENT, entry.current, WeatherCacheCodec::writeWeatherResponse)
+            entry.forecast?.let {
+                writePart(out, WeatherCacheCodec.SECTION_FORECAST, it, WeatherCacheCodec::writeForecastResponse)
+            }
+            entry.airPollution?.let {
+                writePart(out, WeatherCacheCodec.SECTION_AIR_POLLUTION, it, WeatherCacheCodec::writeAirPollutionResponse)
+            }
+        }
+
+        DataOutputStream(BufferedOutputStream(FileOutputStream(file))).use { out ->
+            WeatherCacheCodec.writeHeader(
+                out,
+                WeatherCacheCodec.Header(key, entry.current.timestamp, bodyBytes.size)
+            )
+            out.write(bodyBytes)
+        }
+    }
+
+    private fun <T> writePart(
+        out: DataOutputStream,
+        tag: Byte,
+        part: CachedPart<T>,
+        writer: (DataOutputStream, T) -> Unit
+    ) {
+        val payload = encode {
+            it.writeLong(part.timestamp)
+            it.writeLong(part.expiresAt)
+            writer(it, part.data)
+        }
+        WeatherCacheCodec.writeSection(out, tag, payload)
+    }
+
+    /**
+     * Walk the body sections, decoding the ones we know and skipping the rest by length
+     */
+    private fun readBody(input: DataInputStream, header: WeatherCacheCodec.Header): CacheEntry? {
+        var current: CachedPart<WeatherResponse>? = null
+        var forecast: CachedPart<ForecastResponse>? = null
+        var airPollution: CachedPart<AirPollutionResponse>? = null
+        var remaining = header.bodyLength
+        while (remaining > 0) {
+            val tag = input.readByte()
+            val length = input.readInt()
+            when (tag) {
+                WeatherCacheCodec.SECTION_CURRENT ->
+                    current = readPart(input, WeatherCacheCodec::readWeatherResponse)
+                WeatherCacheCodec.SECTION_FORECAST ->
+                    forecast = readPart(input, WeatherCacheCodec::readForecastResponse)
+                WeatherCacheCodec.SECTION_AIR_POLLUTION ->
+                    airPollution = readPart(input, WeatherCacheCodec::readAirPollutionResponse)
+                else -> input.skipBytes(length)
+            }
+            remaining -= 1 + 4 + length
+        }
+        return current?.let { CacheEntry(it, forecast, airPollution) }
+    }
+
+    private fun readHeader(file: File): WeatherCacheCodec.Header? {
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file), 256)).use { input ->
+                WeatherCacheCodec.readHeader(input)
+            }
+        } catch (e: Exception) {
+            null
+        }
+    }
+
+    private fun <T> readPart(input: DataInputStream, reader: (DataInputStream) -> T): CachedPart<T> {
+        val timestamp = input.readLong()
+        val expiresAt = input.readLong()
+        return CachedPart(reader(input), timestamp, expiresAt)
+    }
+
+    private inline fun encode(block: (DataOutputStream) -> Unit): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use(block)
+        return bytes.toByteArray()
+    }
+
+    private fun fileFor(key: String): File {
+        val name = Integer.toHexString(key.hashCode()) + "_" + key.length
+        return File(directory, name + FILE_SUFFIX)
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.weatherapp.cache
+
+/**
+ * Minimal geohash encoder
+ * Docs: https://en.wikipedia.org/wiki/Geohash
+ */
+object GeoHash {
+    private const val BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz"
+
+    /**
+     * Encode coordinates into a geohash cell of [precision] characters
+     */
+    fun encode(lat: Double, lon: Double, precision: Int): String {
+        var latMin = -90.0
+        var latMax = 90.0
+        var lonMin = -180.0
+        var lonMax = 180.0
+
+        val hash = StringBuilder(precision)
+        var isLonBit = true
+        var bits = 0
+        var ch = 0
+
+        while (hash.length < precision) {
+            ch = ch shl 1
+            if (isLonBit) {
+                val mid = (lonMin + lonMax) / 2
+                if (lon >= mid) {
+                    ch = ch or 1
+                    lonMin = mid
+                } else {
+                    lonMax = mid
+                }
+            } else {
+                val mid = (latMin + latMax) / 2
+                if (lat >= mid) {
+                    ch = ch or 1
+                    latMin = mid
+                } else {
+                    latMax = mid
+                }
+            }
+            isLonBit = !isLonBit
+
+            if (++bits == 5) {
+                hash.append(BASE32[ch])
+                bits = 0
+                ch = 0
+            }
+        }
+        return hash.toString()
+    }
+
+    /**
+     * The cell containing the point plus its 8 neighbours
+     */
+    fun cellAndNeighbors(lat: Double, lon: Double, precision: Int): Set<String> {
+        val latStep = cellHeightDegrees(precision)
+        val lonStep = cellWidthDegrees(precision)
+        val cells = HashSet<String>(9)
+        for (dLat in -1..1) {
+            for (dLon in -1..1) {
+                val nLat = (lat + dLat * latStep).coerceIn(-90.0, 90.0)
+                var nLon = lon + dLon * lonStep
+                if (nLon < -180.0) nLon += 360.0
+                if (nLon >= 180.0) nLon -= 360.0
+                cells.add(encode(nLat, nLon, precision))
+            }
+        }
+        return cells
+    }
+
+    fun cellHeightDegrees(precision: Int): Double = 180.0 / (1L shl (precision * 5 / 2))
+
+    fun cellWidthDegrees(precision: Int): Double = 360.0 / (1L shl ((precision * 5 + 1) / 2))
+}
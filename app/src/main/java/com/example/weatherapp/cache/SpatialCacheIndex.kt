@@ -0,0 +1,106 @@
+package com.example.weatherapp.cache
+
+import kotlin.math.asin
+import kotlin.math.cos
+import kotlin.math.sin
+import kotlin.math.sqrt
+
+/**
+ * Spatial index over cached entries, bucketed by geohash cell
+ * Lets a GPS fix reuse an entry cached a few hundred metres away instead of
+ * missing because its rounded coordinates landed on the other side of a grid line.
+ */
+class SpatialCacheIndex(
+    private val maxEntries: Int = 256
+) {
+    companion object {
+        // Precision 5 cells are ~4.9 km x 4.9 km, so the 3x3 neighbourhood covers any radius up to that
+        private const val CELL_PRECISION = 5
+        private const val EARTH_RADIUS_M = 6_371_000.0
+
+        /**
+         * Haversine distance between two points
+         */
+        fun distanceMeters(lat1: Double, lon1: Double, lat2: Double, lon2: Double): Double {
+            val dLat = Math.toRadians(lat2 - lat1)
+            val dLon = Math.toRadians(lon2 - lon1)
+            val a = sin(dLat / 2) * sin(dLat / 2) +
+                cos(Math.toRadians(lat1)) * cos(Math.toRadians(lat2)) * sin(dLon / 2) * sin(dLon / 2)
+            return 2 * EARTH_RADIUS_M * asin(sqrt(a))
+        }
+    }
+
+    private data class IndexedLocation(
+        val key: String,
+        val lat: Double,
+        val lon: Double,
+        val timestamp: Long,
+        val cell: String
+    )
+
+    private val cells = HashMap<String, MutableMap<String, IndexedLocation>>()
+    private val byKey = HashMap<String, IndexedLocation>()
+
+    @Synchronized
+    fun put(key: String, lat: Double, lon: Double, timestamp: Long) {
+        remove(key)
+        val location = IndexedLocation(key, lat, lon, timestamp, GeoHash.encode(lat, lon, CELL_PRECISION))
+        cells.getOrPut(location.cell) { HashMap() }[key] = location
+        byKey[key] = location
+
+        if (byKey.size > maxEntries) {
+            byKey.values.minByOrNull { it.timestamp }?.let { remove(it.key) }
+        }
+    }
+
+    /**
+     * Index [key] unless it is already indexed (e.g. with its exact coordinates)
+     */
+    @Synchronized
+    fun putIfAbsent(key: String, lat: Double, lon: Double, timestamp: Long) {
+        if (key !in byKey) put(key, lat, lon, timestamp)
+    }
+
+    @Synchronized
+    fun remove(key: String) {
+        val location = byKey.remove(key) ?: return
+        cells[location.cell]?.let { bucket ->
+            bucket.remove(key)
+            if (bucket.isEmpty()) cells.remove(location.cell)
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        cells.clear()
+        byKey.clear()
+    }
+
+    /**
+     * Key of the nearest indexed entry within [radiusMeters] that is at most [maxAgeMs] old
+     */
+    @Synchronized
+    fun findNearest(
+        lat: Double,
+        lon: Double,
+        radiusMeters: Double,
+        maxAgeMs: Long,
+        now: Long = System.currentTimeMillis()
+    ): String? {
+        var nearestKey: String? = null
+        var nearestDistance = radiusMeters
+
+        for (cell in GeoHash.cellAndNeighbors(lat, lon, CELL_PRECISION)) {
+            val bucket = cells[cell] ?: continue
+            for (location in bucket.values) {
+                if (now - location.timestamp > maxAgeMs) continue
+                val distance = distanceMeters(lat, lon, location.lat, location.lon)
+                if (distance <= nearestDistance) {
+                    nearestDistance = distance
+                    nearestKey = location.key
+                }
+            }
+        }
+        return nearestKey
+    }
+}
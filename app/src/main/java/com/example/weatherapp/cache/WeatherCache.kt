@@ -1,110 +1,278 @@
 package com.example.weatherapp.cache
 
 import android.content.Context
-import androidx.datastore.core.DataStore
-import androidx.datastore.preferences.core.*
-import androidx.datastore.preferences.preferencesDataStore
+import android.util.LruCache
+import com.example.weatherapp.models.api.AirPollutionResponse
+import com.example.weatherapp.models.api.ForecastResponse
 import com.example.weatherapp.models.api.WeatherResponse
-import com.google.gson.Gson
-import kotlinx.coroutines.flow.first
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.math.roundToInt
 
-private val Context.dataStore: DataStore<Preferences> by preferencesDataStore(name = "weather_cache")
+/**
+ * One cached API response together with the time it was stored
+ * and the time it expires (see [CacheExpiryPolicy])
+ */
+data class CachedPart<T>(
+    val data: T,
+    val timestamp: Long,
+    val expiresAt: Long
+) {
+    fun ageMs(now: Long = System.currentTimeMillis()): Long = now - timestamp
+
+    /**
+     * Fresh parts can be served without touching the network,
+     * expired ones (up to [WeatherCache.MAX_STALE_MS] old) only while a refresh runs
+     */
+    fun isFresh(now: Long = System.currentTimeMillis()): Boolean = now < expiresAt
+}
 
 /**
- * Weather cache manager using DataStore
- * Caches weather data for 10 minutes to reduce API calls
+ * Everything cached for one location key
+ * Current weather, forecast and air pollution each track their own freshness
  */
-class WeatherCache(private val context: Context) {
-    
-    private val gson = Gson()
-    
+data class CacheEntry(
+    val current: CachedPart<WeatherResponse>,
+    val forecast: CachedPart<ForecastResponse>? = null,
+    val airPollution: CachedPart<AirPollutionResponse>? = null
+) {
+    /**
+     * All three parts present and fresh - the complete data can be served with zero network
+     */
+    fun isCompleteAndFresh(now: Long = System.currentTimeMillis()): Boolean =
+        current.isFresh(now) &&
+            forecast?.isFresh(now) == true &&
+            airPollution?.isFresh(now) == true
+
+    /**
+     * Drop parts older than the hard staleness limit
+     * Returns null when current weather itself is too old to show
+     */
+    fun withoutExpiredParts(now: Long = System.currentTimeMillis()): CacheEntry? {
+        if (current.ageMs(now) > WeatherCache.MAX_STALE_MS) return null
+        return copy(
+            forecast = forecast?.takeIf { it.ageMs(now) <= WeatherCache.MAX_STALE_MS },
+            airPollution = airPollution?.takeIf { it.ageMs(now) <= WeatherCache.MAX_STALE_MS }
+        )
+    }
+}
+
+/**
+ * Two-tier weather cache
+ * - Memory: bounded LRU of decoded responses, shared by every repository in the process
+ * - Disk: one binary record per location key with per-part timestamps, evicted by total size
+ * Each part expires on its endpoint's update cadence and can be served stale for up to 3 hours
+ */
+class WeatherCache(context: Context) {
+
+    private val disk = diskCache(context.applicationContext)
+
     companion object {
-        private const val CACHE_DURATION_MS = 10 * 60 * 1000L // 10 minutes
-        private val WEATHER_DATA_KEY = stringPreferencesKey("weather_data")
-        private val CACHE_TIMESTAMP_KEY = longPreferencesKey("cache_timestamp")
-        private val CACHE_KEY_PREFIX = stringPreferencesKey("cache_key")
+        const val MAX_STALE_MS = 3 * 60 * 60 * 1000L // 3 hours - hard limit for stale data
+
+        // Users flip between 5-8 saved cities plus a few GPS locations
+        private const val MEMORY_MAX_ENTRIES = 16
+        private const val DISK_DIR_NAME = "weather_cache"
+        private const val DISK_MAX_BYTES = 512 * 1024L // 512 KB
+
+        // GPS jitter: reuse an entry cached this close to the requested coordinates
+        const val NEARBY_RADIUS_METERS = 2_000.0
+
+        private val memory = LruCache<String, CacheEntry>(MEMORY_MAX_ENTRIES)
+        private val spatialIndex = SpatialCacheIndex()
+        // Disk entries are indexed from their headers once per process, on the first nearby lookup
+        private val diskIndexed = AtomicBoolean(false)
+
+        @Volatile
+        private var diskInstance: DiskWeatherCache? = null
+
+        private fun diskCache(appContext: Context): DiskWeatherCache {
+            return diskInstance ?: synchronized(this) {
+                diskInstance ?: DiskWeatherCache(
+                    File(appContext.cacheDir, DISK_DIR_NAME),
+                    DISK_MAX_BYTES
+                ).also { diskInstance = it }
+            }
+        }
     }
-    
+
     /**
      * Cache weather response with location key
+     * Forecast and air pollution already cached for the key are kept
      */
     suspend fun cacheWeather(key: String, response: WeatherResponse) {
-        context.dataStore.edit { preferences ->
-            preferences[WEATHER_DATA_KEY] = gson.toJson(response)
-            preferences[CACHE_TIMESTAMP_KEY] = System.currentTimeMillis()
-            preferences[CACHE_KEY_PREFIX] = key
+        cacheComponents(key, response, forecast = null, airPollution = null)
+    }
+
+    /**
+     * Cache the parts fetched for a location key
+     * Null parts (not re-fetched or failed) keep whatever was cached for them before
+     */
+    suspend fun cacheComponents(
+        key: String,
+        current: WeatherResponse?,
+        forecast: ForecastResponse?,
+        airPollution: AirPollutionResponse?
+    ) {
+        val now = System.currentTimeMillis()
+        val previous = getEntry(key)
+        val entry = CacheEntry(
+            current = current?.let { CachedPart(it, now, CacheExpiryPolicy.currentExpiresAt(it, now)) }
+                ?: previous?.current
+                ?: return,
+            forecast = forecast?.let { CachedPart(it, now, CacheExpiryPolicy.forecastExpiresAt(it, now)) }
+                ?: previous?.forecast,
+            airPollution = airPollution?.let { CachedPart(it, now, CacheExpiryPolicy.airPollutionExpiresAt(it, now)) }
+                ?: previous?.airPollution
+        )
+        memory.put(key, entry)
+        index(key, entry)
+        withContext(Dispatchers.IO) {
+            disk.put(key, entry)
         }
     }
-    
+
     /**
-     * Get cached weather if valid (not expired and same location)
+     * Give [toKey] the current conditions cached under [fromKey], fetch time and expiry
+     * included, unless it already holds newer ones; its other parts are kept
      */
-    suspend fun getCachedWeather(key: String): WeatherResponse? {
-        return try {
-            val preferences = context.dataStore.data.first()
-            val cachedKey = preferences[CACHE_KEY_PREFIX]
-            val timestamp = preferences[CACHE_TIMESTAMP_KEY] ?: 0L
-            val weatherJson = preferences[WEATHER_DATA_KEY]
-            
-            // Check if cache is valid
-            if (cachedKey == key && 
-                System.currentTimeMillis() - timestamp < CACHE_DURATION_MS &&
-                weatherJson != null) {
-                gson.fromJson(weatherJson, WeatherResponse::class.java)
-            } else {
-                null
+    suspend fun copyCurrent(fromKey: String, toKey: String) {
+        val current = getEntry(fromKey)?.current ?: return
+        val previous = getEntry(toKey)
+        if (previous != null && previous.current.timestamp >= current.timestamp) return
+        val entry = previous?.copy(current = current) ?: CacheEntry(current)
+        memory.put(toKey, entry)
+        index(toKey, entry)
+        withContext(Dispatchers.IO) {
+            disk.put(toKey, entry)
+        }
+    }
+
+    /**
+     * Get cached entry for key, fresh or stale (memory first, then disk)
+     * Parts older than MAX_STALE_MS are dropped and never returned
+     */
+    suspend fun getEntry(key: String): CacheEntry? {
+        val entry = memory.get(key) ?: withContext(Dispatchers.IO) {
+            disk.get(key)?.also { fromDisk ->
+                // Promote to memory so the next lookup skips disk
+                memory.put(key, fromDisk)
+                index(key, fromDisk)
             }
-        } catch (e: Exception) {
-            null
+        } ?: return null
+
+        val usable = entry.withoutExpiredParts()
+        if (usable == null) {
+            memory.remove(key)
+            spatialIndex.remove(key)
+            withContext(Dispatchers.IO) { disk.remove(key) }
         }
+        return usable
     }
-    
+
     /**
-     * Check if cache is valid for given key
+     * Load the most recently used disk entries into memory and the spatial index
+     * Run at startup, so the first lookups (including "anything cached near here") don't
+     * miss just because the process is new.
+     *
+     * @return how many usable entries were loaded
      */
-    suspend fun isCacheValid(key: String): Boolean {
-        return try {
-            val preferences = context.dataStore.data.first()
-            val cachedKey = preferences[CACHE_KEY_PREFIX]
-            val timestamp = preferences[CACHE_TIMESTAMP_KEY] ?: 0L
-            
-            cachedKey == key && System.currentTimeMillis() - timestamp < CACHE_DURATION_MS
-        } catch (e: Exception) {
-            false
+    suspend fun hydrate(maxEntries: Int = MEMORY_MAX_ENTRIES): Int = withContext(Dispatchers.IO) {
+        disk.recentKeys(maxEntries).count { key -> getEntry(key) != null }
+    }
+
+    /**
+     * Key of the nearest cached coordinate entry within [radiusMeters] and [maxAgeMs]
+     * City entries are never returned: a GPS fix near a city centre must not read or
+     * overwrite the city's entry. Entries only on disk are found too, located by the
+     * coordinates in their key until they are loaded.
+     */
+    suspend fun findNearbyKey(
+        lat: Double,
+        lon: Double,
+        radiusMeters: Double = NEARBY_RADIUS_METERS,
+        maxAgeMs: Long = MAX_STALE_MS
+    ): String? {
+        indexDiskEntries()
+        return spatialIndex.findNearest(lat, lon, radiusMeters, maxAgeMs)
+    }
+
+    private suspend fun indexDiskEntries() {
+        if (!diskIndexed.compareAndSet(false, true)) return
+        withContext(Dispatchers.IO) {
+            for (header in disk.headers()) {
+                val (lat, lon) = cacheKeyToCoords(header.key) ?: continue
+                spatialIndex.putIfAbsent(header.key, lat, lon, header.timestamp)
+            }
         }
     }
-    
+
+    private fun index(key: String, entry: CacheEntry) {
+        // Only coordinate entries take part in nearby lookups
+        if (!key.startsWith(COORDS_KEY_PREFIX)) return
+        val coord = entry.current.data.coord
+        spatialIndex.put(key, coord.lat, coord.lon, entry.current.timestamp)
+    }
+
+    /**
+     * Get cached weather if valid (not expired)
+     */
+    suspend fun getCachedWeather(key: String): WeatherResponse? {
+        val entry = getEntry(key) ?: return null
+        return if (entry.current.isFresh()) entry.current.data else null
+    }
+
+    /**
+     * Check if cache is valid for given key
+     */
+    suspend fun isCacheValid(key: String): Boolean = getCachedWeather(key) != null
+
     /**
      * Clear all cached data
      */
     suspend fun clearCache() {
-        context.dataStore.edit { preferences ->
-            preferences.clear()
+        memory.evictAll()
+        spatialIndex.clear()
+        diskIndexed.set(true)
+        withContext(Dispatchers.IO) {
+            disk.clear()
         }
     }
-    
+
     /**
-     * Get cache age in minutes
+     * Get cache age in minutes for given key
      */
-    suspend fun getCacheAgeMinutes(): Int {
-        return try {
-            val preferences = context.dataStore.data.first()
-            val timestamp = preferences[CACHE_TIMESTAMP_KEY] ?: 0L
-            ((System.currentTimeMillis() - timestamp) / 60000).toInt()
-        } catch (e: Exception) {
-            Int.MAX_VALUE
-        }
+    suspend fun getCacheAgeMinutes(key: String): Int {
+        val timestamp = memory.get(key)?.current?.timestamp
+            ?: withContext(Dispatchers.IO) { disk.peek(key)?.timestamp }
+            ?: return Int.MAX_VALUE
+        return ((System.currentTimeMillis() - timestamp) / 60000).toInt()
     }
 }
 
 /**
  * Generate cache key from city name
  */
-fun cityToCacheKey(city: String, units: String): String = "city:${city.lowercase()}:$units"
+fun cityToCacheKey(city: String): String = "city:${city.lowercase()}"
+
+/**
+ * Generate cache key from coordinates (rounded to 0.01°, stored as hundredths)
+ * Nearby lookups go through [WeatherCache.findNearbyKey]; this is only the exact-match key
+ */
+fun coordsToCacheKey(lat: Double, lon: Double): String =
+    "$COORDS_KEY_PREFIX${(lat * 100).roundToInt()}:${(lon * 100).roundToInt()}"
 
 /**
- * Generate cache key from coordinates
+ * The (rounded) coordinates in a coordinate cache key, null for any other key
  */
-fun coordsToCacheKey(lat: Double, lon: Double, units: String): String = 
-    "coords:${String.format("%.2f", lat)}:${String.format("%.2f", lon)}:$units"
+internal fun cacheKeyToCoords(key: String): Pair<Double, Double>? {
+    if (!key.startsWith(COORDS_KEY_PREFIX)) return null
+    val parts = key.removePrefix(COORDS_KEY_PREFIX).split(':')
+    val lat = parts.getOrNull(0)?.toIntOrNull() ?: return null
+    val lon = parts.getOrNull(1)?.toIntOrNull() ?: return null
+    return lat / 100.0 to lon / 100.0
+}
+
+private const val COORDS_KEY_PREFIX = "coords:"
@@ -0,0 +1,292 @@
+package com.example.weatherapp.cache
+
+import com.example.weatherapp.models.api.*
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/**
+ * Binary record format used by [DiskWeatherCache]
+ *
+ * Record layout:
+ *   int     MAGIC
+ *   short   FORMAT_VERSION
+ *   UTF     key
+ *   long    timestamp
+ *   int     body length in bytes
+ *   body    sequence of sections: byte tag, int length, payload
+ *
+ * Each section payload starts with its own long timestamp and long expiry so
+ * current weather, forecast and air pollution keep independent freshness.
+ *
+ * The header can be read without touching the body, and unknown section
+ * tags are skipped by length so newer sections don't break older readers.
+ * All fields are written as primitives - no reflection on decode.
+ */
+object WeatherCacheCodec {
+    const val MAGIC = 0x57584331 // "WXC1"
+    const val FORMAT_VERSION: Short = 4
+
+    const val SECTION_CURRENT: Byte = 1
+    const val SECTION_FORECAST: Byte = 2
+    const val SECTION_AIR_POLLUTION: Byte = 3
+
+    /**
+     * Record header - everything before the body
+     */
+    data class Header(
+        val key: String,
+        val timestamp: Long,
+        val bodyLength: Int
+    )
+
+    fun writeHeader(out: DataOutputStream, header: Header) {
+        out.writeInt(MAGIC)
+        out.writeShort(FORMAT_VERSION.toInt())
+        out.writeUTF(header.key)
+        out.writeLong(header.timestamp)
+        out.writeInt(header.bodyLength)
+    }
+
+    /**
+     * Read the record header, leaving the stream positioned at the body
+     */
+    fun readHeader(input: DataInputStream): Header {
+        if (input.readInt() != MAGIC) throw IOException("Not a weather cache record")
+        val version = input.readShort()
+        if (version != FORMAT_VERSION) throw IOException("Unsupported cache format version $version")
+        return Header(
+            key = input.readUTF(),
+            timestamp = input.readLong(),
+            bodyLength = input.readInt()
+        )
+    }
+
+    fun writeSection(out: DataOutputStream, tag: Byte, payload: ByteArray) {
+        out.writeByte(tag.toInt())
+        out.writeInt(payload.size)
+        out.write(payload)
+    }
+
+    // ---- Current weather ----
+
+    fun writeWeatherResponse(out: DataOutputStream, r: WeatherResponse) {
+        writeCoord(out, r.coord)
+        writeWeatherList(out, r.weather)
+        writeMain(out, r.main)
+        writeWind(out, r.wind)
+        out.writeInt(r.clouds.all)
+        out.writeUTF(r.sys.country)
+        out.writeLong(r.sys.sunrise)
+        out.writeLong(r.sys.sunset)
+        out.writeUTF(r.name)
+        out.writeLong(r.dt)
+        writeNullableInt(out, r.visibility)
+        writeNullableInt(out, r.timezone)
+    }
+
+    fun readWeatherResponse(input: DataInputStream): WeatherResponse {
+        return WeatherResponse(
+            coord = readCoord(input),
+            weather = readWeatherList(input),
+            main = readMain(input),
+            wind = readWind(input),
+            clouds = Clouds(all = input.readInt()),
+            sys = Sys(
+                country = input.readUTF(),
+                sunrise = input.readLong(),
+                sunset = input.readLong()
+            ),
+            name = input.readUTF(),
+            dt = input.readLong(),
+            visibility = readNullableInt(input),
+            timezone = readNullableInt(input)
+        )
+    }
+
+    // ---- Forecast ----
+
+    fun writeForecastResponse(out: DataOutputStream, r: ForecastResponse) {
+        out.writeUTF(r.cod)
+        out.writeInt(r.message)
+        out.writeInt(r.cnt)
+        out.writeInt(r.list.size)
+        r.list.forEach { item ->
+            out.writeLong(item.dt)
+            writeMain(out, item.main)
+            writeWeatherList(out, item.weather)
+            out.writeInt(item.clouds.all)
+            writeWind(out, item.wind)
+            writeNullableInt(out, item.visibility)
+            writeNullableDouble(out, item.pop)
+            writeNullableDouble(out, item.rain?.`3h`)
+            writeNullableDouble(out, item.snow?.`3h`)
+            out.writeUTF(item.sys.pod)
+            out.writeUTF(item.dt_txt)
+        }
+        out.writeInt(r.city.id)
+        out.writeUTF(r.city.name)
+        writeCoord(out, r.city.coord)
+        out.writeUTF(r.city.country)
+        writeNullableInt(out, r.city.population)
+        out.writeInt(r.city.timezone)
+        out.writeLong(r.city.sunrise)
+        out.writeLong(r.city.sunset)
+    }
+
+    fun readForecastResponse(input: DataInputStream): ForecastResponse {
+        val cod = input.readUTF()
+        val message = input.readInt()
+        val cnt = input.readInt()
+        val size = input.readInt()
+        val list = ArrayList<ForecastItem>(size)
+        repeat(size) {
+            list.add(
+                ForecastItem(
+                    dt = input.readLong(),
+                    main = readMain(input),
+                    weather = readWeatherList(input),
+                    clouds = Clouds(all = input.readInt()),
+                    wind = readWind(input),
+                    visibility = readNullableInt(input),
+                    pop = readNullableDouble(input),
+                    rain = readNullableDouble(input)?.let { Rain(`3h` = it) },
+                    snow = readNullableDouble(input)?.let { Snow(`3h` = it) },
+                    sys = ForecastSys(pod = input.readUTF()),
+                    dt_txt = input.readUTF()
+                )
+            )
+        }
+        val city = City(
+            id = input.readInt(),
+            name = input.readUTF(),
+            coord = readCoord(input),
+            country = input.readUTF(),
+            population = readNullableInt(input),
+            timezone = input.readInt(),
+            sunrise = input.readLong(),
+            sunset = input.readLong()
+        )
+        return ForecastResponse(cod = cod, message = message, cnt = cnt, list = list, city = city)
+    }
+
+    // ---- Air pollution ----
+
+    fun writeAirPollutionResponse(out: DataOutputStream, r: AirPollutionResponse) {
+        writeCoord(out, r.coord)
+        out.writeInt(r.list.size)
+        r.list.forEach { item ->
+            out.writeLong(item.dt)
+            out.writeInt(item.main.aqi)
+            // co / no / so2 / nh3 are never displayed and are not stored
+            with(item.components) {
+                out.writeDouble(no2)
+                out.writeDouble(o3)
+                out.writeDouble(pm2_5)
+                out.writeDouble(pm10)
+            }
+        }
+    }
+
+    fun readAirPollutionResponse(input: DataInputStream): AirPollutionResponse {
+        val coord = readCoord(input)
+        val size = input.readInt()
+        val list = ArrayList<AirPollutionItem>(size)
+        repeat(size) {
+            list.add(
+                AirPollutionItem(
+                    dt = input.readLong(),
+                    main = AirQualityMain(aqi = input.readInt()),
+                    components = AirComponents(
+                        no2 = input.readDouble(),
+                        o3 = input.readDouble(),
+                        pm2_5 = input.readDouble(),
+                        pm10 = input.readDouble()
+                    )
+                )
+            )
+        }
+        return AirPollutionResponse(coord = coord, list = list)
+    }
+
+    // ---- Shared pieces ----
+
+    private fun writeCoord(out: DataOutputStream, c: Coord) {
+        out.writeDouble(c.lon)
+        out.writeDouble(c.lat)
+    }
+
+    private fun readCoord(input: DataInputStream): Coord =
+        Coord(lon = input.readDouble(), lat = input.readDouble())
+
+    private fun writeWeatherList(out: DataOutputStream, list: List<Weather>) {
+        out.writeByte(list.size)
+        list.forEach { w ->
+            out.writeInt(w.id)
+            out.writeUTF(w.main)
+            out.writeUTF(w.description)
+            out.writeUTF(w.icon)
+        }
+    }
+
+    private fun readWeatherList(input: DataInputStream): List<Weather> {
+        val size = input.readUnsignedByte()
+        val list = ArrayList<Weather>(size)
+        repeat(size) {
+            list.add(
+                Weather(
+                    id = input.readInt(),
+                    main = input.readUTF(),
+                    description = input.readUTF(),
+                    icon = input.readUTF()
+                )
+            )
+        }
+        return list
+    }
+
+    // sea_level / grnd_level are never displayed and are not stored
+    private fun writeMain(out: DataOutputStream, m: Main) {
+        out.writeDouble(m.temp)
+        out.writeDouble(m.feels_like)
+        out.writeDouble(m.temp_min)
+        out.writeDouble(m.temp_max)
+        out.writeInt(m.pressure)
+        out.writeInt(m.humidity)
+    }
+
+    private fun readMain(input: DataInputStream): Main =
+        Main(
+            temp = input.readDouble(),
+            feels_like = input.readDouble(),
+            temp_min = input.readDouble(),
+            temp_max = input.readDouble(),
+            pressure = input.readInt(),
+            humidity = input.readInt()
+        )
+
+    private fun writeWind(out: DataOutputStream, w: Wind) {
+        out.writeDouble(w.speed)
+        out.writeInt(w.deg)
+        writeNullableDouble(out, w.gust)
+    }
+
+    private fun readWind(input: DataInputStream): Wind =
+        Wind(speed = input.readDouble(), deg = input.readInt(), gust = readNullableDouble(input))
+
+    private fun writeNullableInt(out: DataOutputStream, value: Int?) {
+        out.writeBoolean(value != null)
+        if (value != null) out.writeInt(value)
+    }
+
+    private fun readNullableInt(input: DataInputStream): Int? =
+        if (input.readBoolean()) input.readInt() else null
+
+    private fun writeNullableDouble(out: DataOutputStream, value: Double?) {
+        out.writeBoolean(value != null)
+        if (value != null) out.writeDouble(value)
+    }
+
+    private fun readNullableDouble(input: DataInputStream): Double? =
+        if (input.readBoolean()) input.readDouble() else null
+}
@@ -125,7 +125,7 @@ fun CurrentWeatherCard(
                 WeatherDetailItem(
                     icon = Icons.Outlined.Air,
                     label = "Wind",
-                    value = "${weatherData.windSpeed} km/h",
+                    value = "${weatherData.windSpeed} ${weatherData.windUnit}",
                     iconColor = FreshGreen,
                     modifier = Modifier.weight(1f)
                 )
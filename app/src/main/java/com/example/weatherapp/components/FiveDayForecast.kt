@@ -226,7 +226,7 @@ private fun DailyForecastItem(forecast: DailyForecast) {
                 Text(text = "💨", fontSize = 12.sp)
                 Spacer(modifier = Modifier.width(4.dp))
                 Text(
-                    text = "${forecast.windSpeed.toInt()} km/h",
+                    text = "${forecast.windSpeed.toInt()} ${forecast.windUnit}",
                     fontSize = 12.sp,
                     color = CyanPrimary
                 )
@@ -476,7 +476,7 @@ fun WeatherDetailsRow(
     ) {
         WeatherDetailItem(
             icon = "💨",
-            value = "${weatherData.windSpeed} km/h",
+            value = "${weatherData.windSpeed} ${weatherData.windUnit}",
             label = "Wind",
             modifier = Modifier.weight(1f)
         )
@@ -494,7 +494,7 @@ fun WeatherDetailsRow(
         )
         WeatherDetailItem(
             icon = "👁️",
-            value = "${weatherData.visibility} km",
+            value = "${weatherData.visibility} ${weatherData.visibilityUnit}",
             label = "Visibility",
             modifier = Modifier.weight(1f)
         )
@@ -1,58 +0,0 @@
-package com.example.weatherapp.data.model
-
-data class WeatherResponse(
-    val coord: Coord,
-    val weather: List<Weather>,
-    val base: String,
-    val main: Main,
-    val visibility: Int,
-    val wind: Wind,
-    val clouds: Clouds,
-    val dt: Long,
-    val sys: Sys,
-    val timezone: Int,
-    val id: Int,
-    val name: String,
-    val cod: Int
-)
-
-data class Coord(
-    val lon: Double,
-    val lat: Double
-)
-
-data class Weather(
-    val id: Int,
-    val main: String,
-    val description: String,
-    val icon: String
-)
-
-data class Main(
-    val temp: Double,
-    val feels_like: Double,
-    val temp_min: Double,
-    val temp_max: Double,
-    val pressure: Int,
-    val humidity: Int,
-    val sea_level: Int? = null,
-    val grnd_level: Int? = null
-)
-
-data class Wind(
-    val speed: Double,
-    val deg: Int,
-    val gust: Double? = null
-)
-
-data class Clouds(
-    val all: Int
-)
-
-data class Sys(
-    val type: Int? = null,
-    val id: Int? = null,
-    val country: String,
-    val sunrise: Long,
-    val sunset: Long
-)
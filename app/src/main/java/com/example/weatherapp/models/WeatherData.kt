@@ -10,8 +10,10 @@ data class WeatherData(
     val feelsLike: Int = 36,
     val humidity: Int = 75,
     val windSpeed: Int = 12,
+    val windUnit: String = "km/h",       // Display unit of windSpeed, follows the °C/°F choice
     val pressure: Int = 1011,
     val visibility: Double = 10.0,
+    val visibilityUnit: String = "km",   // Display unit of visibility
     val airQuality: AirQuality = AirQuality(),
     val uvIndex: UVIndex = UVIndex(),
     val sunriseSunset: SunriseSunset = SunriseSunset(),
@@ -46,7 +48,8 @@ data class HourlyForecast(
     val condition: String,
     val icon: String = "☀️",
     val humidity: Int = 50,
-    val windSpeed: Double = 5.0
+    val windSpeed: Double = 5.0,
+    val windUnit: String = "km/h"
 )
 
 data class DailyForecast(
@@ -57,5 +60,6 @@ data class DailyForecast(
     val condition: String,
     val icon: String = "⛅",
     val precipChance: Int = 0,
-    val windSpeed: Double = 5.0
+    val windSpeed: Double = 5.0,
+    val windUnit: String = "km/h"
 )
@@ -15,7 +15,17 @@ data class WeatherResponse(
     val name: String,
     val dt: Long,
     val visibility: Int? = 10000,
-    val timezone: Int? = 0  // Shift in seconds from UTC
+    val timezone: Int? = 0,  // Shift in seconds from UTC
+    val id: Int? = null      // City ID, used for bulk (group) requests; not kept in the cache
+)
+
+/**
+ * Current weather for several cities
+ * API: /group (up to 20 city IDs per call)
+ */
+data class GroupWeatherResponse(
+    val cnt: Int,
+    val list: List<WeatherResponse>
 )
 
 data class Coord(
@@ -37,8 +47,8 @@ data class Main(
     val temp_max: Double,  // Note: This is max temp at the moment of calculation, not daily max
     val pressure: Int,
     val humidity: Int,
-    val sea_level: Int? = null,
-    val grnd_level: Int? = null
+    val sea_level: Int? = null,   // Never displayed, skipped when decoding
+    val grnd_level: Int? = null   // Never displayed, skipped when decoding
 )
 
 data class Wind(
@@ -130,12 +140,12 @@ data class AirQualityMain(
 )
 
 data class AirComponents(
-    val co: Double,      // Carbon monoxide, μg/m³
-    val no: Double,      // Nitrogen monoxide, μg/m³
-    val no2: Double,     // Nitrogen dioxide, μg/m³
-    val o3: Double,      // Ozone, μg/m³
-    val so2: Double,     // Sulphur dioxide, μg/m³
-    val pm2_5: Double,   // Fine particles (PM2.5), μg/m³
-    val pm10: Double,    // Coarse particles (PM10), μg/m³
-    val nh3: Double      // Ammonia, μg/m³
+    val co: Double? = null,   // Carbon monoxide, μg/m³ (never displayed, skipped when decoding)
+    val no: Double? = null,   // Nitrogen monoxide, μg/m³ (never displayed, skipped when decoding)
+    val no2: Double,          // Nitrogen dioxide, μg/m³
+    val o3: Double,           // Ozone, μg/m³
+    val so2: Double? = null,  // Sulphur dioxide, μg/m³ (never displayed, skipped when decoding)
+    val pm2_5: Double,        // Fine particles (PM2.5), μg/m³
+    val pm10: Double,         // Coarse particles (PM10), μg/m³
+    val nh3: Double? = null   // Ammonia, μg/m³ (never displayed, skipped when decoding)
 )
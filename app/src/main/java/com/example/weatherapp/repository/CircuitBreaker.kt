@@ -0,0 +1,103 @@
+package com.example.weatherapp.repository
+
+import android.util.Log
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+
+/**
+ * Circuit breaker around the weather API
+ *
+ * CLOSED: calls go through; [failureThreshold] consecutive network failures open it.
+ * OPEN: calls are refused (callers serve cached or offline data) until the open period ends.
+ * HALF_OPEN: one probe call is let through; success closes the breaker, failure re-opens it
+ * with the open period doubled (up to [maxOpenMs]).
+ */
+class CircuitBreaker(
+    private val failureThreshold: Int = 3,
+    private val initialOpenMs: Long = 15_000L,
+    private val maxOpenMs: Long = 5 * 60_000L,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    companion object {
+        private const val TAG = "CircuitBreaker"
+    }
+
+    enum class State { CLOSED, OPEN, HALF_OPEN }
+
+    private val _state = MutableStateFlow(State.CLOSED)
+
+    /**
+     * Current state, collect it to observe transitions
+     */
+    val state: StateFlow<State> = _state.asStateFlow()
+
+    private var consecutiveFailures = 0
+    private var openMs = initialOpenMs
+    private var openedAt = 0L
+    private var probeStartedAt = 0L
+
+    /**
+     * Whether a call may go to the network now
+     * In HALF_OPEN only one probe is admitted; a probe that never reports back
+     * (e.g. cancelled) is replaced after another open period.
+     */
+    @Synchronized
+    fun allowRequest(): Boolean {
+        val now = clock()
+        return when (_state.value) {
+            State.CLOSED -> true
+            State.OPEN -> {
+                if (now - openedAt < openMs) return false
+                transition(State.HALF_OPEN)
+                probeStartedAt = now
+                true
+            }
+            State.HALF_OPEN -> {
+                if (now - probeStartedAt < openMs) return false
+                probeStartedAt = now
+                true
+            }
+        }
+    }
+
+    @Synchronized
+    fun onSuccess() {
+        consecutiveFailures = 0
+        openMs = initialOpenMs
+        if (_state.value != State.CLOSED) transition(State.CLOSED)
+    }
+
+    /**
+     * The call got an answer without reaching the API (the HTTP cache served it), which
+     * says nothing about the network. A HALF_OPEN probe doesn't count: the next call probes.
+     */
+    @Synchronized
+    fun onInconclusive() {
+        if (_state.value == State.HALF_OPEN) probeStartedAt = 0L
+    }
+
+    @Synchronized
+    fun onFailure() {
+        consecutiveFailures++
+        when (_state.value) {
+            State.CLOSED -> if (consecutiveFailures >= failureThreshold) open()
+            State.HALF_OPEN -> {
+                // Probe failed, back off before the next one
+                openMs = (openMs * 2).coerceAtMost(maxOpenMs)
+                open()
+            }
+            State.OPEN -> Unit
+        }
+    }
+
+    private fun open() {
+        openedAt = clock()
+        transition(State.OPEN)
+    }
+
+    private fun transition(to: State) {
+        Log.d(TAG, "${_state.value} -> $to" + if (to == State.OPEN) " for ${openMs}ms" else "")
+        _state.value = to
+    }
+}
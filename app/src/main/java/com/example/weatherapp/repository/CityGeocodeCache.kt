@@ -0,0 +1,186 @@
+package com.example.weatherapp.repository
+
+import android.util.Log
+import com.example.weatherapp.models.api.Coord
+import com.example.weatherapp.models.api.ForecastResponse
+import com.example.weatherapp.models.api.WeatherResponse
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.math.abs
+
+/**
+ * City name -> OpenWeatherMap city ID and coordinates, persisted across processes
+ * Seeded with the Cambodian cities the app offers and extended from every current-weather
+ * and forecast response fetched by name. The coordinates let a city lookup start the air
+ * pollution call in parallel with the others instead of waiting for current weather; the ID
+ * enables bulk (group) requests, and is checked against the coordinates so a bulk result for
+ * a wrong or outdated ID is noticed instead of cached under the name.
+ *
+ * The file is read in the background after [attach]; until then [resolve] only knows the
+ * built-in cities and what this process has learned, and misses the rest.
+ */
+object CityGeocodeCache {
+    data class CityRef(
+        val id: Int,
+        val lat: Double,
+        val lon: Double
+    ) {
+        val coord: Coord get() = Coord(lon = lon, lat = lat)
+    }
+
+    private const val TAG = "CityGeocodeCache"
+    const val FILE_NAME = "city_geocode.dat"
+    private const val FORMAT_VERSION = 1
+
+    // About 30 km - a city's reported coordinates never move further than that
+    private const val MAX_COORD_DRIFT_DEGREES = 0.3
+
+    // Closer than this is the same position, not worth a rewrite
+    private const val SAME_POSITION_DEGREES = 0.001
+
+    private val byName = ConcurrentHashMap(
+        mapOf(
+            "phnom penh" to CityRef(1821306, 11.5564, 104.9282),
+            "siem reap" to CityRef(1822214, 13.3633, 103.8564),
+            "battambang" to CityRef(1831173, 13.1023, 103.1962),
+            "sihanoukville" to CityRef(1821935, 10.6093, 103.5296),
+            "kampot" to CityRef(1831112, 10.5940, 104.1640),
+            "kratie" to CityRef(1830205, 12.4880, 106.0189)
+        )
+    )
+
+    private val io = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val attached = AtomicBoolean(false)
+    @Volatile
+    private var file: File? = null
+    private var loaded = false  // Guarded by fileLock
+    // Serializes changes with the file I/O; never taken by attach or resolve
+    private val fileLock = Any()
+    // Learned or forgotten before the file was loaded, so newer than what it holds (guarded by fileLock)
+    private val changedBeforeLoad = HashSet<String>()
+
+    /**
+     * Start persisting to [file]; returns at once, what earlier processes learned is loaded
+     * from an IO thread. Only the first call has an effect; none of them take a lock.
+     */
+    fun attach(file: File) {
+        if (!attached.compareAndSet(false, true)) return
+        this.file = file
+        io.launch { load(file) }
+    }
+
+    private fun load(file: File) {
+        synchronized(fileLock) {
+            val stored = read(file)
+            stored.forEach { (name, ref) -> if (name !in changedBeforeLoad) byName[name] = ref }
+            loaded = true
+            if (changedBeforeLoad.isNotEmpty()) writeLocked(file)
+            changedBeforeLoad.clear()
+            if (stored.isNotEmpty()) Log.d(TAG, "Loaded ${stored.size} geocoded cities")
+        }
+    }
+
+    fun resolve(city: String): CityRef? = byName[normalize(city)]
+
+    /**
+     * Remember where a city fetched by name is
+     */
+    fun learn(city: String, response: WeatherResponse) = learn(city, response.id, response.coord)
+
+    fun learn(city: String, forecast: ForecastResponse) = learn(city, forecast.city.id, forecast.city.coord)
+
+    fun forget(city: String) {
+        val name = normalize(city)
+        synchronized(fileLock) {
+            if (byName.remove(name) != null) changed(name)
+        }
+    }
+
+    /**
+     * Whether a bulk result really is the city the entry describes
+     */
+    fun matches(ref: CityRef, response: WeatherResponse): Boolean =
+        response.id == ref.id &&
+            abs(response.coord.lat - ref.lat) <= MAX_COORD_DRIFT_DEGREES &&
+            abs(response.coord.lon - ref.lon) <= MAX_COORD_DRIFT_DEGREES
+
+    private fun learn(city: String, id: Int?, coord: Coord) {
+        val validId = id?.takeIf { it > 0 } ?: return
+        val ref = CityRef(validId, coord.lat, coord.lon)
+        val name = normalize(city)
+        synchronized(fileLock) {
+            val previous = byName.put(name, ref)
+            val unchanged = previous != null && previous.id == ref.id &&
+                abs(previous.lat - ref.lat) < SAME_POSITION_DEGREES &&
+                abs(previous.lon - ref.lon) < SAME_POSITION_DEGREES
+            if (!unchanged) changed(name)
+        }
+    }
+
+    /**
+     * Persist a change to [name]; called with fileLock held. Until the file is loaded the
+     * change is only noted, and the load writes it out with the rest.
+     */
+    private fun changed(name: String) {
+        if (!loaded) {
+            changedBeforeLoad.add(name)
+            return
+        }
+        writeLocked(file ?: return)
+    }
+
+    // "Phnom Penh, KH" and "phnom penh" are the same city
+    private fun normalize(city: String): String = city.substringBefore(',').trim().lowercase()
+
+    private fun writeLocked(file: File) {
+        try {
+            val tmp = File(file.parentFile, file.name + ".tmp")
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+                val snapshot = HashMap(byName)
+                output.writeInt(FORMAT_VERSION)
+                output.writeInt(snapshot.size)
+                for ((name, ref) in snapshot) {
+                    output.writeUTF(name)
+                    output.writeInt(ref.id)
+                    output.writeDouble(ref.lat)
+                    output.writeDouble(ref.lon)
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete()
+                tmp.renameTo(file)
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to write geocode cache: ${e.message}")
+        }
+    }
+
+    private fun read(file: File): Map<String, CityRef> {
+        if (!file.exists()) return emptyMap()
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FORMAT_VERSION) return emptyMap()
+                val entries = HashMap<String, CityRef>()
+                repeat(input.readInt()) {
+                    entries[input.readUTF()] = CityRef(input.readInt(), input.readDouble(), input.readDouble())
+                }
+                entries
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Geocode cache unreadable, using the built-in cities: ${e.message}")
+            emptyMap()
+        }
+    }
+}
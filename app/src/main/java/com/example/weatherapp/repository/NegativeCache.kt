@@ -0,0 +1,100 @@
+package com.example.weatherapp.repository
+
+import com.example.weatherapp.util.WeatherError
+
+/**
+ * Remembers lookups the API rejected for good, so repeats fail without a call
+ * Keyed by normalized query; only errors that a retry can't fix are kept, each for its
+ * own TTL. An invalid API key fails every query, so it is stored once for all of them.
+ * Bounded LRU, so a stream of typos can't grow it.
+ */
+class NegativeCache(
+    private val maxEntries: Int = 64,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    companion object {
+        // City names don't appear within minutes, keep typos out for a while
+        private const val CITY_NOT_FOUND_TTL_MS = 15 * 60_000L
+        // Short: the key may have just been activated on the provider's side
+        private const val INVALID_API_KEY_TTL_MS = 5 * 60_000L
+
+        private const val ANY_QUERY = "*"
+        private val WHITESPACE = Regex("\\s+")
+
+        fun normalize(query: String): String = query.trim().lowercase().replace(WHITESPACE, " ")
+    }
+
+    data class Stats(
+        val size: Int,
+        val stored: Long,                     // Failures remembered since process start
+        val hits: Long,                       // Calls saved
+        val hitsByError: Map<String, Long>    // Calls saved per error type
+    )
+
+    private class Entry(val error: WeatherError, val expiresAt: Long)
+
+    // Access order, so the least recently used entry is evicted first
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>): Boolean =
+            size > maxEntries
+    }
+    private var stored = 0L
+    private val hitsByError = HashMap<String, Long>()
+
+    /**
+     * The remembered failure for [query], if it hasn't expired
+     */
+    @Synchronized
+    fun get(query: String): WeatherError? {
+        val now = clock()
+        val entry = live(ANY_QUERY, now) ?: live(normalize(query), now) ?: return null
+        return hit(entry)
+    }
+
+    /**
+     * The remembered failure that holds for every query (a rejected API key), if any
+     */
+    @Synchronized
+    fun getForAnyQuery(): WeatherError? {
+        val entry = live(ANY_QUERY, clock()) ?: return null
+        return hit(entry)
+    }
+
+    /**
+     * Remember [error] for [query]; errors worth retrying are ignored
+     */
+    @Synchronized
+    fun put(query: String, error: WeatherError) {
+        val (key, ttl) = when (error) {
+            WeatherError.CityNotFound -> normalize(query) to CITY_NOT_FOUND_TTL_MS
+            WeatherError.InvalidApiKey -> ANY_QUERY to INVALID_API_KEY_TTL_MS
+            else -> return
+        }
+        entries[key] = Entry(error, clock() + ttl)
+        stored++
+    }
+
+    @Synchronized
+    fun clear() = entries.clear()
+
+    @Synchronized
+    fun stats(): Stats = Stats(
+        size = entries.size,
+        stored = stored,
+        hits = hitsByError.values.sum(),
+        hitsByError = HashMap(hitsByError)
+    )
+
+    private fun hit(entry: Entry): WeatherError {
+        val name = entry.error::class.java.simpleName
+        hitsByError[name] = (hitsByError[name] ?: 0L) + 1
+        return entry.error
+    }
+
+    private fun live(key: String, now: Long): Entry? {
+        val entry = entries[key] ?: return null
+        if (now < entry.expiresAt) return entry
+        entries.remove(key)
+        return null
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.weatherapp.repository
+
+import android.util.Log
+import com.example.weatherapp.util.RateLimiter
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Process-wide ledger of API calls against the provider's quota
+ * Wraps the [RateLimiter] window with per-endpoint accounting and an append-only
+ * journal on disk, so a restarted process (or a crash loop) picks up the calls it
+ * already made this minute instead of starting with a fresh budget.
+ *
+ * Admission never touches the disk: the journal is loaded and written on [io], and
+ * admitted calls are appended there in batches, outside the ledger's lock (and so
+ * outside the scheduler's, which calls in with its own held).
+ */
+class QuotaLedger(
+    val maxRequests: Int,
+    private val windowMs: Long,
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val io: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+) {
+    companion object {
+        private const val TAG = "QuotaLedger"
+        const val FILE_NAME = "api_quota.journal"
+        private const val UPSTREAM_LIMITED = "429"
+    }
+
+    /**
+     * Calls in the current window and since process start, per endpoint
+     */
+    data class Stats(
+        val inWindow: Int,
+        val maxRequests: Int,
+        val inWindowByEndpoint: Map<String, Int>,
+        val totalByEndpoint: Map<String, Long>,  // Since process start, restored calls excluded
+        val restored: Int,                       // Calls carried over from before the restart
+        val refunded: Long                       // Permits given back, the HTTP cache answered
+    )
+
+    /**
+     * One admitted call, as handed out by [tryAcquire]; give it to [refund] to return its permit
+     */
+    class Call internal constructor(val time: Long, val endpoint: String)
+
+    private val limiter = RateLimiter(maxRequests, windowMs, clock)
+    private val window = ArrayDeque<Call>()
+    private val totals = HashMap<String, Long>()
+    private var restored = 0
+    private var refunded = 0L
+    private val attached = AtomicBoolean(false)
+    @Volatile
+    private var journal: File? = null
+    // Admitted calls not yet in the journal, and whether a flush is on its way for them
+    private val unwritten = ArrayList<Call>()
+    private var flushScheduled = false
+    private var journalLoaded = false
+
+    // Serializes journal file I/O; taken before the ledger's lock, never while holding it
+    private val journalLock = Any()
+    private var journalEntries = 0  // Guarded by journalLock
+
+    /**
+     * Start persisting to [file]; returns at once, the calls it recorded within the window
+     * are merged in from an IO thread. Only the first call has an effect, and no call waits
+     * on the ledger's lock (repositories attach from the main thread).
+     */
+    fun attach(file: File) {
+        if (!attached.compareAndSet(false, true)) return
+        journal = file
+        io.launch { loadJournal(file) }
+    }
+
+    private fun loadJournal(file: File) {
+        synchronized(journalLock) {
+            val loaded = readJournal(file)
+            val merged = synchronized(this) {
+                val now = clock()
+                val live = loaded.filter { now - it.time < windowMs }
+                restored = live.size
+                val merged = (live + window).sortedBy { it.time }
+                window.clear()
+                window.addAll(merged)
+                limiter.restore(merged.map { it.time })
+                // The rewrite below includes everything admitted so far
+                unwritten.clear()
+                journalLoaded = true
+                merged
+            }
+
+            // Rewrite with only the live calls so the journal never grows unbounded
+            writeJournal(file, merged)
+            if (restored > 0) Log.d(TAG, "Restored $restored call(s) from the previous process")
+        }
+    }
+
+    /**
+     * Take a permit for one call to [endpoint] if fewer than [limit] calls are in the window
+     * @return the admitted call, null when the window is full
+     */
+    @Synchronized
+    fun tryAcquire(limit: Int, endpoint: String): Call? {
+        if (!limiter.tryAcquire(limit)) return null
+        val call = Call(clock(), endpoint)
+        prune(call.time)
+        window.addLast(call)
+        totals[endpoint] = (totals[endpoint] ?: 0L) + 1
+        append(call)
+        return call
+    }
+
+    /**
+     * Give back the permit of [call], which never reached the API (the HTTP cache answered
+     * it, or it was cancelled). Exactly that admission leaves the window, so concurrent
+     * calls to the same endpoint keep their ages. The journal keeps its record, so a
+     * restart within the window still counts it, erring on the side of the provider's limit.
+     */
+    @Synchronized
+    fun refund(call: Call) {
+        // Already out of the window: nothing left to give back
+        if (!window.remove(call)) return
+        limiter.release(call.time)
+        totals[call.endpoint] = ((totals[call.endpoint] ?: 1L) - 1).coerceAtLeast(0L)
+        refunded++
+    }
+
+    @Synchronized
+    fun canAcquire(limit: Int): Boolean = limiter.canMakeRequest(limit)
+
+    @Synchronized
+    fun getWaitTimeMs(limit: Int): Long = limiter.getWaitTimeMs(limit)
+
+    /**
+     * The provider answered 429: our count drifted from theirs, so treat the whole
+     * window as spent rather than risk another rejected call
+     */
+    @Synchronized
+    fun onUpstreamRateLimited() {
+        val now = clock()
+        Log.w(TAG, "Upstream rate limit hit, pausing calls for ${windowMs}ms")
+        limiter.restore(List(maxRequests) { now })
+        totals[UPSTREAM_LIMITED] = (totals[UPSTREAM_LIMITED] ?: 0L) + 1
+    }
+
+    @Synchronized
+    fun stats(): Stats {
+        prune(clock())
+        return Stats(
+            inWindow = window.size,
+            maxRequests = maxRequests,
+            inWindowByEndpoint = window.groupingBy { it.endpoint }.eachCount(),
+            totalByEndpoint = HashMap(totals),
+            restored = restored,
+            refunded = refunded
+        )
+    }
+
+    private fun prune(now: Long) {
+        while (window.isNotEmpty() && now - window.first().time >= windowMs) {
+            window.removeFirst()
+        }
+    }
+
+    /**
+     * Queue [call] for the journal; called with the ledger's lock held, so it only hands
+     * the write to [io]. Calls admitted before that flush runs go out in the same batch.
+     */
+    private fun append(call: Call) {
+        if (journal == null) return
+        unwritten.add(call)
+        if (!flushScheduled) {
+            flushScheduled = true
+            io.launch { flushJournal() }
+        }
+    }
+
+    private fun flushJournal() {
+        synchronized(journalLock) {
+            val file = journal ?: return
+            val (batch, live) = synchronized(this) {
+                flushScheduled = false
+                // Still loading: the load rewrites the journal with these calls included
+                if (!journalLoaded || unwritten.isEmpty()) return
+                val batch = ArrayList(unwritten)
+                unwritten.clear()
+                batch to window.toList()
+            }
+
+            // Compact once the journal holds a few windows' worth of dead entries
+            if (journalEntries + batch.size > maxRequests * 4) {
+                writeJournal(file, live)
+                return
+            }
+            try {
+                DataOutputStream(BufferedOutputStream(FileOutputStream(file, true))).use { output ->
+                    batch.forEach {
+                        output.writeLong(it.time)
+                        output.writeUTF(it.endpoint)
+                    }
+                }
+                journalEntries += batch.size
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to append to quota journal: ${e.message}")
+            }
+        }
+    }
+
+    private fun writeJournal(file: File, calls: List<Call>) {
+        try {
+            val tmp = File(file.parentFile, file.name + ".tmp")
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+                calls.forEach {
+                    output.writeLong(it.time)
+                    output.writeUTF(it.endpoint)
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete()
+                tmp.renameTo(file)
+            }
+            journalEntries = calls.size
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to write quota journal: ${e.message}")
+        }
+    }
+
+    private fun readJournal(file: File): List<Call> {
+        if (!file.exists()) return emptyList()
+        val calls = ArrayList<Call>()
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                while (true) {
+                    val time = input.readLong()
+                    calls.add(Call(time, input.readUTF()))
+                }
+            }
+        } catch (e: EOFException) {
+            // End of journal, or a record torn by a crash mid-append
+        } catch (e: Exception) {
+            Log.w(TAG, "Quota journal unreadable, keeping ${calls.size} call(s): ${e.message}")
+        }
+        return calls
+    }
+}
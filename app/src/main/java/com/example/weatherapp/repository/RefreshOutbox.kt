@@ -0,0 +1,205 @@
+package com.example.weatherapp.repository
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * A refresh that couldn't reach the API, waiting for connectivity
+ * Identified by the cache key it fills, so repeated failures for one location coalesce.
+ */
+data class PendingRefresh(
+    val cacheKey: String,
+    val city: String?,             // Looked up by name, or else by coordinates
+    val lat: Double,
+    val lon: Double,
+    val endpoints: Set<String>,    // "weather", "forecast", "air_pollution"
+    val priority: RequestPriority, // Of the original request, orders the drain
+    val enqueuedAt: Long
+) {
+    companion object {
+        val CURRENT_ONLY = setOf("weather")
+        val COMPLETE = setOf("weather", "forecast", "air_pollution")
+    }
+
+    /**
+     * Fold a later failure for the same location into this one
+     */
+    fun merge(other: PendingRefresh): PendingRefresh = copy(
+        endpoints = endpoints + other.endpoints,
+        priority = minOf(priority, other.priority),
+        enqueuedAt = minOf(enqueuedAt, other.enqueuedAt)
+    )
+}
+
+/**
+ * Process-wide, persisted outbox of refreshes to retry once the network is back
+ * Holds at most one entry per location and at most [maxEntries] entries; when full, the
+ * least urgent, oldest entry gives way. Entries older than [maxAgeMs] are dropped, the
+ * user won't be looking for that data any more. Rewritten to disk on every change
+ * (it is a handful of records), so pending work survives the process.
+ *
+ * The file is read on [io], never in [attach]: refreshes queued before it is loaded are
+ * kept in memory and merged with what it held, then written out together.
+ */
+class RefreshOutbox(
+    private val maxEntries: Int = 20,
+    private val maxAgeMs: Long = 24 * 60 * 60_000L,
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val io: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+) {
+    companion object {
+        private const val TAG = "RefreshOutbox"
+        const val FILE_NAME = "refresh_outbox.dat"
+        private const val FORMAT_VERSION = 1
+    }
+
+    private val entries = LinkedHashMap<String, PendingRefresh>()
+    private val attached = AtomicBoolean(false)
+    @Volatile
+    private var file: File? = null
+    // Writes wait for the load, which then writes everything queued meanwhile
+    private var loaded = false
+    @Volatile
+    private var loading: Job? = null
+
+    /**
+     * Start persisting to [file]; returns at once, what it holds is merged in from an IO
+     * thread. Only the first call has an effect, and no call waits on the outbox's lock.
+     */
+    fun attach(file: File) {
+        if (!attached.compareAndSet(false, true)) return
+        this.file = file
+        // Published before it runs, so awaitLoaded can't miss it
+        val job = io.launch(start = CoroutineStart.LAZY) { load(file) }
+        loading = job
+        job.start()
+    }
+
+    private fun load(file: File) {
+        val stored = read(file)
+        synchronized(this) {
+            // Queued this run, so newer: merged on top of the stored entries
+            val queued = entries.values.toList()
+            entries.clear()
+            (stored + queued).forEach { put(it) }
+            prune()
+            loaded = true
+            write()
+        }
+        if (stored.isNotEmpty()) Log.d(TAG, "${stored.size} pending refresh(es) from a previous process")
+    }
+
+    /**
+     * Suspend until the attached file has been merged in (returns at once when never attached)
+     */
+    suspend fun awaitLoaded() {
+        loading?.join()
+    }
+
+    @Synchronized
+    fun enqueue(refresh: PendingRefresh) {
+        put(refresh)
+        prune()
+        write()
+    }
+
+    /**
+     * Pending refreshes, most urgent and oldest first
+     */
+    @Synchronized
+    fun pending(): List<PendingRefresh> {
+        prune()
+        return entries.values.sortedWith(compareBy({ it.priority.ordinal }, { it.enqueuedAt }))
+    }
+
+    /**
+     * Remove [refresh] once done, unless a newer failure has been merged into it meanwhile
+     */
+    @Synchronized
+    fun complete(refresh: PendingRefresh) {
+        if (entries[refresh.cacheKey] == refresh) {
+            entries.remove(refresh.cacheKey)
+            write()
+        }
+    }
+
+    @Synchronized
+    fun isEmpty(): Boolean = entries.isEmpty()
+
+    private fun put(refresh: PendingRefresh) {
+        entries[refresh.cacheKey] = entries[refresh.cacheKey]?.merge(refresh) ?: refresh
+    }
+
+    private fun prune() {
+        val now = clock()
+        entries.values.removeAll { now - it.enqueuedAt > maxAgeMs }
+        while (entries.size > maxEntries) {
+            val evicted = entries.values.maxWith(compareBy({ it.priority.ordinal }, { -it.enqueuedAt }))
+            entries.remove(evicted.cacheKey)
+        }
+    }
+
+    private fun write() {
+        val file = file ?: return
+        if (!loaded) return
+        try {
+            val tmp = File(file.parentFile, file.name + ".tmp")
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+                output.writeInt(FORMAT_VERSION)
+                output.writeInt(entries.size)
+                for (refresh in entries.values) {
+                    output.writeUTF(refresh.cacheKey)
+                    output.writeUTF(refresh.city ?: "")
+                    output.writeDouble(refresh.lat)
+                    output.writeDouble(refresh.lon)
+                    output.writeInt(refresh.endpoints.size)
+                    refresh.endpoints.forEach { output.writeUTF(it) }
+                    output.writeInt(refresh.priority.ordinal)
+                    output.writeLong(refresh.enqueuedAt)
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete()
+                tmp.renameTo(file)
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to write refresh outbox: ${e.message}")
+        }
+    }
+
+    private fun read(file: File): List<PendingRefresh> {
+        if (!file.exists()) return emptyList()
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FORMAT_VERSION) return emptyList()
+                List(input.readInt()) {
+                    PendingRefresh(
+                        cacheKey = input.readUTF(),
+                        city = input.readUTF().ifEmpty { null },
+                        lat = input.readDouble(),
+                        lon = input.readDouble(),
+                        endpoints = List(input.readInt()) { input.readUTF() }.toSet(),
+                        priority = RequestPriority.values()[input.readInt()],
+                        enqueuedAt = input.readLong()
+                    )
+                }
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Refresh outbox unreadable, starting empty: ${e.message}")
+            emptyList()
+        }
+    }
+}
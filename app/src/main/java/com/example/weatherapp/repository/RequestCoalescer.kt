@@ -0,0 +1,82 @@
+package com.example.weatherapp.repository
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Single-flight table of in-flight API calls
+ * Concurrent callers asking for the same key (location + units + endpoint) share one
+ * network call and one parsed response instead of each spending rate-limit budget.
+ *
+ * Cancellation is per caller: a cancelled caller just stops waiting, and the shared
+ * call is only cancelled once every caller waiting on it has gone away.
+ */
+class RequestCoalescer(
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+) {
+    /**
+     * Counters for how much work coalescing saved
+     */
+    data class Stats(
+        val started: Long,    // Calls that actually went to the network
+        val coalesced: Long,  // Callers that joined a call already in flight
+        val inFlight: Int
+    )
+
+    private class Flight(val deferred: Deferred<Any?>) {
+        var waiters = 0
+    }
+
+    private val flights = HashMap<String, Flight>()
+    private val started = AtomicLong()
+    private val coalesced = AtomicLong()
+
+    @Suppress("UNCHECKED_CAST")
+    suspend fun <T> execute(key: String, block: suspend () -> T): T {
+        val flight = join(key, block)
+        try {
+            return flight.deferred.await() as T
+        } finally {
+            leave(key, flight)
+        }
+    }
+
+    fun stats(): Stats = synchronized(this) {
+        Stats(started = started.get(), coalesced = coalesced.get(), inFlight = flights.size)
+    }
+
+    private fun join(key: String, block: suspend () -> Any?): Flight = synchronized(this) {
+        flights[key]?.let { existing ->
+            existing.waiters++
+            coalesced.incrementAndGet()
+            return existing
+        }
+
+        val flight = Flight(scope.async(start = CoroutineStart.LAZY) { block() })
+        flight.waiters = 1
+        flights[key] = flight
+        started.incrementAndGet()
+
+        flight.deferred.invokeOnCompletion {
+            synchronized(this) {
+                if (flights[key] === flight) flights.remove(key)
+            }
+        }
+        flight.deferred.start()
+        flight
+    }
+
+    private fun leave(key: String, flight: Flight) = synchronized(this) {
+        flight.waiters--
+        if (flight.waiters == 0 && !flight.deferred.isCompleted) {
+            // Nobody is interested any more, stop the network call
+            flight.deferred.cancel()
+            if (flights[key] === flight) flights.remove(key)
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.weatherapp.repository
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.selects.select
+import kotlinx.coroutines.supervisorScope
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Hedged execution for idempotent GETs
+ * If the first attempt is still running at the endpoint's p95 latency, an identical second
+ * attempt is started; the first to succeed wins and the other is cancelled. A hedge only
+ * goes out when [tryAcquireHedge] grants it a permit without waiting, so hedging is paid
+ * for out of the quota like any other call and never queues ahead of real work.
+ */
+class RequestHedger(
+    private val hedgeDelayMs: (endpoint: String) -> Long?,      // null = latency not known yet, don't hedge
+    private val tryAcquireHedge: (endpoint: String) -> Boolean
+) {
+    data class Stats(
+        val hedged: Long,  // Second attempts started
+        val won: Long      // Second attempts that finished first
+    )
+
+    private val hedged = AtomicLong()
+    private val won = AtomicLong()
+
+    suspend fun <T> execute(endpoint: String, call: suspend () -> T): T {
+        val delayMs = hedgeDelayMs(endpoint) ?: return call()
+
+        return supervisorScope {
+            val primary = async { call() }
+            val finishedInTime = withTimeoutOrNull(delayMs) { primary.join() } != null
+            if (finishedInTime || !tryAcquireHedge(endpoint)) {
+                return@supervisorScope primary.await()
+            }
+
+            hedged.incrementAndGet()
+            val hedge = async { call() }
+            val (winner, result) = firstSuccess(listOf(primary, hedge))
+            if (winner === hedge) won.incrementAndGet()
+            result
+        }
+    }
+
+    fun stats(): Stats = Stats(hedged = hedged.get(), won = won.get())
+
+    /**
+     * Await the first attempt to succeed and cancel the rest; fails only once all have failed
+     */
+    private suspend fun <T> firstSuccess(attempts: List<Deferred<T>>): Pair<Deferred<T>, T> {
+        var running = attempts
+        while (true) {
+            val done = select<Deferred<T>> {
+                running.forEach { attempt -> attempt.onJoin { attempt } }
+            }
+            try {
+                val result = done.await()
+                attempts.forEach { if (it !== done) it.cancel() }
+                return done to result
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                running = running - done
+                if (running.isEmpty()) throw e
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.weatherapp.repository
+
+import android.util.Log
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.EnumMap
+
+/**
+ * Who is waiting for an API call, most urgent first
+ * Each class may only use its share of the rate-limit window; the rest stays reserved
+ * for the classes above it.
+ */
+enum class RequestPriority(val quotaShare: Double) {
+    USER_INTERACTIVE(1.0),   // The user searched or tapped a city, may use the whole window
+    VISIBLE_PREFETCH(0.8),   // Data for something on screen the user didn't ask for directly
+    BACKGROUND(0.5)          // Housekeeping, e.g. refreshing saved locations
+}
+
+/**
+ * Thrown to a queued low-priority request that was shed instead of waiting for quota
+ */
+class RequestDroppedException(
+    val priority: RequestPriority,
+    reason: String
+) : Exception("Request dropped ($priority): $reason")
+
+/**
+ * Priority-aware admission in front of the API quota
+ * A request is admitted immediately when its class still has room in the window and
+ * nothing of equal or higher priority is waiting. Otherwise it queues, and waiting
+ * requests are admitted strictly by priority, so a user tap never waits behind
+ * housekeeping traffic. Queued background work is dropped when interactive traffic
+ * has to wait, when its queue is full, or when it has waited too long.
+ */
+class RequestScheduler(
+    private val ledger: QuotaLedger,
+    private val maxQueuedBackground: Int = 8,
+    private val maxBackgroundWaitMs: Long = 30_000L,
+    private val clock: () -> Long = System::currentTimeMillis,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+) {
+    companion object {
+        private const val TAG = "RequestScheduler"
+    }
+
+    /**
+     * Admission counters per priority since process start, plus current queue depth
+     */
+    data class Stats(
+        val admitted: Map<RequestPriority, Long>,    // Got a permit, immediately or after waiting
+        val queued: Map<RequestPriority, Long>,      // Had to wait for quota
+        val dropped: Map<RequestPriority, Long>,     // Shed while waiting
+        val promoted: Long,                          // Raised to a higher priority by a joining caller
+        val queueDepth: Map<RequestPriority, Int>
+    )
+
+    private class Ticket(
+        var priority: RequestPriority,
+        val endpoint: String,
+        val tag: String?,
+        val enqueuedAt: Long
+    ) {
+        val granted = CompletableDeferred<QuotaLedger.Call>()
+
+        // Set with the scheduler's lock held when the ledger permit is taken for the ticket
+        var permit: QuotaLedger.Call? = null
+    }
+
+    private val queues = EnumMap<RequestPriority, ArrayDeque<Ticket>>(RequestPriority::class.java).apply {
+        RequestPriority.values().forEach { put(it, ArrayDeque()) }
+    }
+    private val admitted = LongArray(RequestPriority.values().size)
+    private val queued = LongArray(RequestPriority.values().size)
+    private val dropped = LongArray(RequestPriority.values().size)
+    private var promoted = 0L
+    // One long-lived pump admits queued tickets; enqueues, promotions and refunds wake it
+    private var pumpJob: Job? = null
+    private val pumpWakeups = Channel<Unit>(Channel.CONFLATED)
+
+    /**
+     * Suspend until [priority] may make one API call to [endpoint]
+     *
+     * @param tag identifies the call so a later, more urgent caller can [promote] it
+     * @return the admitted call, to [refund] if it never reaches the API
+     * @throws RequestDroppedException when queued background work is shed
+     */
+    suspend fun acquire(priority: RequestPriority, endpoint: String, tag: String? = null): QuotaLedger.Call {
+        val ticket = synchronized(this) {
+            if (!hasQueuedAtOrAbove(priority)) {
+                ledger.tryAcquire(limitFor(priority), endpoint)?.let { call ->
+                    admitted[priority.ordinal]++
+                    return call
+                }
+            }
+
+            when (priority) {
+                // Quota is exhausted, housekeeping can try again later
+                RequestPriority.USER_INTERACTIVE -> dropQueued(RequestPriority.BACKGROUND, "preempted")
+                RequestPriority.BACKGROUND -> if (queueOf(priority).size >= maxQueuedBackground) {
+                    dropped[priority.ordinal]++
+                    throw RequestDroppedException(priority, "queue full")
+                }
+                else -> Unit
+            }
+
+            Ticket(priority, endpoint, tag, clock()).also {
+                queueOf(priority).addLast(it)
+                queued[priority.ordinal]++
+                wakePump()
+            }
+        }
+
+        try {
+            return ticket.granted.await()
+        } catch (e: CancellationException) {
+            synchronized(this) {
+                // Granted while we were being cancelled: the permit was taken but no call will be made
+                val permit = ticket.permit
+                if (!queueOf(ticket.priority).remove(ticket) && permit != null) {
+                    ledger.refund(permit)
+                    wakePump()
+                }
+            }
+            throw e
+        }
+    }
+
+    /**
+     * Take a permit for [priority] only if one is available right now, never queueing
+     * (e.g. for optional extra calls such as hedges)
+     */
+    fun tryAcquire(priority: RequestPriority, endpoint: String): Boolean = synchronized(this) {
+        if (hasQueuedAtOrAbove(priority)) return false
+        if (ledger.tryAcquire(limitFor(priority), endpoint) == null) return false
+        admitted[priority.ordinal]++
+        true
+    }
+
+    /**
+     * Give back the permit of [call], which never reached the API, so a queued request can have it
+     */
+    fun refund(call: QuotaLedger.Call) = synchronized(this) {
+        ledger.refund(call)
+        if (RequestPriority.values().any { queueOf(it).isNotEmpty() }) wakePump()
+    }
+
+    /**
+     * Raise a queued request to [priority], e.g. when the user asks for data a
+     * background refresh is already waiting to fetch
+     */
+    fun promote(tag: String, priority: RequestPriority) = synchronized(this) {
+        for (lower in RequestPriority.values()) {
+            if (lower.ordinal <= priority.ordinal) continue
+            val queue = queueOf(lower)
+            val ticket = queue.firstOrNull { it.tag == tag } ?: continue
+            queue.remove(ticket)
+            ticket.priority = priority
+            queueOf(priority).addLast(ticket)
+            promoted++
+            wakePump()
+        }
+    }
+
+    /**
+     * Whether [priority] would be admitted right now (does not take a permit)
+     */
+    fun canAdmit(priority: RequestPriority): Boolean = synchronized(this) {
+        !hasQueuedAtOrAbove(priority) && ledger.canAcquire(limitFor(priority))
+    }
+
+    fun stats(): Stats = synchronized(this) {
+        val priorities = RequestPriority.values()
+        Stats(
+            admitted = priorities.associateWith { admitted[it.ordinal] },
+            queued = priorities.associateWith { queued[it.ordinal] },
+            dropped = priorities.associateWith { dropped[it.ordinal] },
+            promoted = promoted,
+            queueDepth = priorities.associateWith { queueOf(it).size }
+        )
+    }
+
+    private fun queueOf(priority: RequestPriority): ArrayDeque<Ticket> = queues.getValue(priority)
+
+    private fun limitFor(priority: RequestPriority): Int =
+        (ledger.maxRequests * priority.quotaShare).toInt().coerceAtLeast(1)
+
+    private fun hasQueuedAtOrAbove(priority: RequestPriority): Boolean =
+        RequestPriority.values().any { it.ordinal <= priority.ordinal && queueOf(it).isNotEmpty() }
+
+    private fun dropQueued(priority: RequestPriority, reason: String) {
+        val queue = queueOf(priority)
+        if (queue.isEmpty()) return
+        Log.d(TAG, "Dropping ${queue.size} queued $priority request(s): $reason")
+        while (queue.isNotEmpty()) {
+            dropped[priority.ordinal]++
+            queue.removeFirst().granted.completeExceptionally(RequestDroppedException(priority, reason))
+        }
+    }
+
+    /**
+     * Make the pump re-plan, e.g. because the head of a queue changed or quota was given back
+     * Started on first use; afterwards this only signals it, nothing is relaunched.
+     */
+    private fun wakePump() {
+        if (pumpJob == null) pumpJob = scope.launch { pump() }
+        pumpWakeups.trySend(Unit)
+    }
+
+    private suspend fun pump() {
+        while (true) {
+            val waitMs = synchronized(this) { admitQueued() }
+            // Idle until woken, or wait for quota to free up unless woken earlier
+            if (waitMs == null) {
+                pumpWakeups.receive()
+            } else {
+                withTimeoutOrNull(waitMs.coerceAtLeast(1)) { pumpWakeups.receive() }
+            }
+        }
+    }
+
+    /**
+     * Admit queued tickets in priority order
+     * @return how long until the first blocked ticket may be admitted, null when the queues are empty
+     */
+    private fun admitQueued(): Long? {
+        val now = clock()
+        val background = queueOf(RequestPriority.BACKGROUND)
+        while (background.isNotEmpty() && now - background.first().enqueuedAt > maxBackgroundWaitMs) {
+            dropped[RequestPriority.BACKGROUND.ordinal]++
+            background.removeFirst().granted.completeExceptionally(
+                RequestDroppedException(RequestPriority.BACKGROUND, "waited too long")
+            )
+        }
+
+        for (priority in RequestPriority.values()) {
+            val queue = queueOf(priority)
+            while (queue.isNotEmpty()) {
+                val limit = limitFor(priority)
+                // Lower classes have lower limits, so nothing below this one can go either
+                val call = ledger.tryAcquire(limit, queue.first().endpoint)
+                    ?: return ledger.getWaitTimeMs(limit)
+                admitted[priority.ordinal]++
+                val ticket = queue.removeFirst()
+                ticket.permit = call
+                ticket.granted.complete(call)
+            }
+        }
+        return null
+    }
+}
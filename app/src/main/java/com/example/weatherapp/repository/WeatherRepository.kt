@@ -3,20 +3,38 @@ package com.example.weatherapp.repository
 import android.content.Context
 import android.util.Log
 import com.example.weatherapp.BuildConfig
+import com.example.weatherapp.api.HttpCachePolicy.CacheDirective
+import com.example.weatherapp.api.NetworkTelemetry
 import com.example.weatherapp.api.RetrofitClient
+import com.example.weatherapp.cache.CacheEntry
+import com.example.weatherapp.cache.SpatialCacheIndex
 import com.example.weatherapp.cache.WeatherCache
 import com.example.weatherapp.cache.cityToCacheKey
 import com.example.weatherapp.cache.coordsToCacheKey
 import com.example.weatherapp.models.api.*
-import com.example.weatherapp.util.RateLimiter
+import com.example.weatherapp.sync.OutboxSyncJobService
 import com.example.weatherapp.util.WeatherError
 import com.example.weatherapp.util.WeatherResult
 import com.example.weatherapp.util.toWeatherError
+import com.google.gson.JsonParseException
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
-import kotlinx.coroutines.delay
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import kotlinx.coroutines.withContext
+import okhttp3.ResponseBody.Companion.toResponseBody
 import retrofit2.HttpException
+import retrofit2.Response
+import java.io.File
+import java.io.IOException
 
 /**
  * Combined weather data from multiple API endpoints
@@ -24,10 +42,45 @@ import retrofit2.HttpException
 data class CombinedWeatherData(
     val current: WeatherResponse,
     val forecast: ForecastResponse?,
-    val airPollution: AirPollutionResponse?
+    val airPollution: AirPollutionResponse?,
+    val isMock: Boolean = false,           // Generated offline data, never preferred over real cached data
+    val isCachedFallback: Boolean = false  // Served from cache because the API is unreachable
+)
+
+/**
+ * A place to refresh in bulk, e.g. one of the user's saved locations
+ */
+data class LocationQuery(
+    val name: String,
+    val lat: Double,
+    val lon: Double
+)
+
+/**
+ * One location's result in a bulk refresh, emitted as soon as that location is done
+ */
+data class LocationWeather(
+    val location: LocationQuery,
+    val result: Result<CombinedWeatherData>
 )
 
 class WeatherRepository(context: Context? = null) {
+    init {
+        context?.let {
+            // HTTP cache needs a cache dir before the client is first built
+            RetrofitClient.init(it)
+            // Calls made by a previous process this minute still count
+            quotaLedger.attach(File(it.applicationContext.filesDir, QuotaLedger.FILE_NAME))
+            // Refreshes that failed offline in a previous process are still owed
+            outbox.attach(File(it.applicationContext.filesDir, RefreshOutbox.FILE_NAME))
+            // Cities looked up before can go straight to coordinates
+            CityGeocodeCache.attach(File(it.applicationContext.filesDir, CityGeocodeCache.FILE_NAME))
+        }
+    }
+    
+    // Needed to schedule the outbox sync job (optional, like the cache)
+    private val appContext: Context? = context?.applicationContext
+    
     private val apiService = RetrofitClient.weatherApiService
     
     // Use BuildConfig for secure API key storage
@@ -41,15 +94,50 @@ class WeatherRepository(context: Context? = null) {
     // Cache instance (optional - needs context)
     private val cache: WeatherCache? = context?.let { WeatherCache(it) }
     
-    // Rate limiter: OpenWeatherMap free tier allows 60 calls/minute
-    // We make 3 calls per refresh (current + forecast + air), so limit to ~18 refreshes/min
-    private val rateLimiter = RateLimiter(maxRequests = 55, windowMs = 60_000L)
-    
-    // Set to true to force mock data (for offline testing)
-    private var useMockData = false
-    
     companion object {
         private const val TAG = "WeatherRepository"
+        
+        // Everything is fetched and cached in one unit system; display units are converted
+        // locally when mapping to WeatherData, so toggling °C/°F never refetches
+        const val CANONICAL_UNITS = "metric"
+        
+        // Shared by every repository so WeatherScreen, MapScreen and search share in-flight calls
+        private val coalescer = RequestCoalescer()
+        
+        // Network health is process-wide too: while the API is unreachable every screen
+        // serves cached (or offline) data, and only the breaker's probes touch the network
+        private val circuitBreaker = CircuitBreaker()
+        
+        // Rate limit: OpenWeatherMap free tier allows 60 calls/minute
+        // We make 3 calls per refresh (current + forecast + air), so limit to ~18 refreshes/min
+        // One ledger per process, persisted, so no number of repositories or restarts can exceed it
+        private val quotaLedger = QuotaLedger(maxRequests = 55, windowMs = 60_000L)
+        
+        // Background work and the user's searches draw on that budget by priority
+        private val scheduler = RequestScheduler(quotaLedger)
+        
+        // Refreshes that fell back to offline data, retried by a job once the network is back
+        private val outbox = RefreshOutbox()
+        
+        // Nobody is waiting on a retried refresh
+        private val SYNC_PRIORITY = RequestPriority.BACKGROUND
+        
+        // Queries the API rejected for good (unknown city, bad key), answered without a call
+        private val negativeCache = NegativeCache()
+        
+        // Provider limit for one /group call
+        private const val GROUP_MAX_IDS = 20
+        
+        // Locations loading at once in a bulk refresh; each needs up to 3 calls
+        private const val MAX_CONCURRENT_LOCATIONS = 3
+        
+        // Current weather gates the screen, so a slow call gets a second attempt at its p95
+        // Hedges only use spare background-share quota
+        private val HEDGED_ENDPOINTS = setOf("weather")
+        private val hedger = RequestHedger(
+            hedgeDelayMs = { endpoint -> RetrofitClient.latencyP95Ms(endpoint) },
+            tryAcquireHedge = { endpoint -> scheduler.tryAcquire(RequestPriority.BACKGROUND, endpoint) }
+        )
     }
     
     /**
@@ -84,15 +172,16 @@ class WeatherRepository(context: Context? = null) {
                 )
             ),
             main = Main(
-                temp = (86.0 + tempVariation).coerceIn(75.0, 95.0),  // 75-95°F
-                feels_like = (91.4 + tempVariation).coerceIn(80.0, 100.0),
-                temp_min = (82.4 + tempVariation).coerceIn(72.0, 90.0),
-                temp_max = (89.6 + tempVariation).coerceIn(80.0, 98.0),
+                // Canonical metric units, like real responses
+                temp = (30.0 + tempVariation * 0.5).coerceIn(24.0, 35.0),  // 24-35°C
+                feels_like = (33.0 + tempVariation * 0.5).coerceIn(27.0, 38.0),
+                temp_min = (28.0 + tempVariation * 0.5).coerceIn(22.0, 32.0),
+                temp_max = (32.0 + tempVariation * 0.5).coerceIn(27.0, 37.0),
                 pressure = 1012 + (hash % 10) - 5,
                 humidity = (65 + humidityVariation).coerceIn(40, 90)
             ),
             wind = Wind(
-                speed = 5.0 + (hash % 10),
+                speed = 2.0 + (hash % 10) * 0.4,  // m/s
                 deg = (hash % 360)
             ),
             clouds = Clouds(all = 20 + (hash % 60)),
@@ -111,47 +200,42 @@ class WeatherRepository(context: Context? = null) {
      * Get weather by city name with caching and error handling
      */
     suspend fun getWeatherByCity(
-        city: String, 
-        units: String = "imperial"
+        city: String
     ): Result<WeatherResponse> = withContext(Dispatchers.IO) {
-        val cacheKey = cityToCacheKey(city, units)
+        val cacheKey = cityToCacheKey(city)
         
         // Try cache first
         cache?.getCachedWeather(cacheKey)?.let { cached ->
             return@withContext Result.success(cached)
         }
         
-        // If we already know API is unreachable, use mock data
-        if (useMockData) {
-            Log.d(TAG, "Using mock data for city: $city (offline mode)")
-            return@withContext Result.success(generateMockWeather(city))
-        }
+        knownFailure(city)?.let { return@withContext Result.failure(it) }
         
-        // Check rate limit
-        if (!rateLimiter.canMakeRequest()) {
-            val waitTime = rateLimiter.getWaitTimeMs()
-            if (waitTime > 0) {
-                delay(waitTime)
-            }
+        // If we already know API is unreachable, serve cached or mock data
+        if (!circuitBreaker.allowRequest()) {
+            Log.d(TAG, "API unreachable, offline data for city: $city")
+            return@withContext Result.success(offlineCurrent(cacheKey, cityRefresh(city, cacheKey, PendingRefresh.CURRENT_ONLY)) { generateMockWeather(city) })
         }
         
         return@withContext try {
-            rateLimiter.recordRequest()
-            val response = apiService.getCurrentWeather(city, apiKey, units)
+            val response = callApi("weather", cacheKey) { fetchCurrentByName(city, it) }
             
             // Cache the response
             cache?.cacheWeather(cacheKey, response)
-            useMockData = false  // API is working
             
             Result.success(response)
         } catch (e: HttpException) {
             Log.e(TAG, "HTTP error for city $city: ${e.code()}")
             Result.failure(Exception(handleHttpError(e.code())))
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: JsonParseException) {
+            // The API answered with something unusable: not an outage, and retrying gets the same
+            Log.e(TAG, "Malformed response: ${e.message}")
+            Result.failure(e)
         } catch (e: Exception) {
-            // Network error - switch to mock data mode
-            Log.e(TAG, "Network error for city $city, switching to mock data: ${e.message}")
-            useMockData = true
-            Result.success(generateMockWeather(city))
+            Log.e(TAG, "Network error for city $city, using offline data: ${e.message}")
+            Result.success(offlineCurrent(cacheKey, cityRefresh(city, cacheKey, PendingRefresh.CURRENT_ONLY)) { generateMockWeather(city) })
         }
     }
     
@@ -160,47 +244,40 @@ class WeatherRepository(context: Context? = null) {
      */
     suspend fun getWeatherByCoords(
         lat: Double, 
-        lon: Double, 
-        units: String = "imperial"
+        lon: Double
     ): Result<WeatherResponse> = withContext(Dispatchers.IO) {
-        val cacheKey = coordsToCacheKey(lat, lon, units)
+        val cacheKey = coordsCacheKey(lat, lon)
         
         // Try cache first
         cache?.getCachedWeather(cacheKey)?.let { cached ->
             return@withContext Result.success(cached)
         }
         
-        // If we already know API is unreachable, use mock data
-        if (useMockData) {
-            Log.d(TAG, "Using mock data for coords: $lat, $lon (offline mode)")
-            return@withContext Result.success(generateMockWeather("Phnom Penh", lat, lon))
-        }
-        
-        // Check rate limit
-        if (!rateLimiter.canMakeRequest()) {
-            val waitTime = rateLimiter.getWaitTimeMs()
-            if (waitTime > 0) {
-                delay(waitTime)
-            }
+        // If we already know API is unreachable, serve cached or mock data
+        if (!circuitBreaker.allowRequest()) {
+            Log.d(TAG, "API unreachable, offline data for coords: $lat, $lon")
+            return@withContext Result.success(offlineCurrent(cacheKey, coordsRefresh(lat, lon, cacheKey, PendingRefresh.CURRENT_ONLY)) { generateMockWeather("Phnom Penh", lat, lon) })
         }
         
         return@withContext try {
-            rateLimiter.recordRequest()
-            val response = apiService.getWeatherByCoords(lat, lon, apiKey, units)
+            val response = callApi("weather", cacheKey) { apiService.getWeatherByCoords(lat, lon, apiKey, CANONICAL_UNITS, it.cacheControl, it) }
             
             // Cache the response
             cache?.cacheWeather(cacheKey, response)
-            useMockData = false  // API is working
             
             Result.success(response)
         } catch (e: HttpException) {
             Log.e(TAG, "HTTP error for coords $lat, $lon: ${e.code()}")
             Result.failure(Exception(handleHttpError(e.code())))
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: JsonParseException) {
+            // The API answered with something unusable: not an outage, and retrying gets the same
+            Log.e(TAG, "Malformed response: ${e.message}")
+            Result.failure(e)
         } catch (e: Exception) {
-            // Network error - switch to mock data mode
-            Log.e(TAG, "Network error for coords, switching to mock data: ${e.message}")
-            useMockData = true
-            Result.success(generateMockWeather("Phnom Penh", lat, lon))
+            Log.e(TAG, "Network error for coords, using offline data: ${e.message}")
+            Result.success(offlineCurrent(cacheKey, coordsRefresh(lat, lon, cacheKey, PendingRefresh.CURRENT_ONLY)) { generateMockWeather("Phnom Penh", lat, lon) })
         }
     }
     
@@ -208,28 +285,30 @@ class WeatherRepository(context: Context? = null) {
      * Get weather with detailed result type
      */
     suspend fun getWeatherWithResult(
-        city: String,
-        units: String = "metric"
+        city: String
     ): WeatherResult<WeatherResponse> = withContext(Dispatchers.IO) {
-        val cacheKey = cityToCacheKey(city, units)
+        val cacheKey = cityToCacheKey(city)
         
         // Try cache first
         cache?.getCachedWeather(cacheKey)?.let { cached ->
             return@withContext WeatherResult.Success(cached, fromCache = true)
         }
         
+        negativeCache.get(city)?.let { return@withContext WeatherResult.Error(it) }
+        
         // Check rate limit
-        if (!rateLimiter.canMakeRequest()) {
+        if (!scheduler.canAdmit(RequestPriority.USER_INTERACTIVE)) {
             return@withContext WeatherResult.Error(WeatherError.RateLimitExceeded)
         }
         
         return@withContext try {
-            rateLimiter.recordRequest()
-            val response = apiService.getCurrentWeather(city, apiKey, units)
+            val response = callApi("weather", cacheKey) { fetchCurrentByName(city, it) }
             cache?.cacheWeather(cacheKey, response)
             WeatherResult.Success(response, fromCache = false)
         } catch (e: HttpException) {
             WeatherResult.Error(httpCodeToError(e.code()))
+        } catch (e: CancellationException) {
+            throw e
         } catch (e: Exception) {
             WeatherResult.Error(e.toWeatherError())
         }
@@ -238,16 +317,17 @@ class WeatherRepository(context: Context? = null) {
     /**
      * Force refresh - bypass cache
      */
-    suspend fun forceRefresh(city: String, units: String = "metric"): Result<WeatherResponse> =
+    suspend fun forceRefresh(city: String): Result<WeatherResponse> =
         withContext(Dispatchers.IO) {
-            if (!rateLimiter.canMakeRequest()) {
+            if (!scheduler.canAdmit(RequestPriority.USER_INTERACTIVE)) {
                 return@withContext Result.failure(Exception("Rate limit exceeded. Please wait."))
             }
+            knownFailure(city)?.let { return@withContext Result.failure(it) }
             
             try {
-                rateLimiter.recordRequest()
-                val response = apiService.getCurrentWeather(city, apiKey, units)
-                val cacheKey = cityToCacheKey(city, units)
+                val cacheKey = cityToCacheKey(city)
+                // Past the HTTP cache too, or OkHttp could answer with the body it already has
+                val response = callApi("weather", cacheKey, forceNetwork = true) { fetchCurrentByName(city, it) }
                 cache?.cacheWeather(cacheKey, response)
                 Result.success(response)
             } catch (e: HttpException) {
@@ -260,76 +340,52 @@ class WeatherRepository(context: Context? = null) {
     /**
      * Get complete weather data including forecast and air quality
      * This fetches all available data from the free tier APIs
+     * Only parts whose cache entry has expired are re-fetched, so a cache hit costs zero network
      */
     suspend fun getCompleteWeatherByCity(
         city: String,
-        units: String = "metric"
+        forceRefresh: Boolean = false,
+        priority: RequestPriority = RequestPriority.USER_INTERACTIVE
     ): Result<CombinedWeatherData> = withContext(Dispatchers.IO) {
-        if (useMockData) {
-            Log.d(TAG, "Using mock data for complete weather: $city")
-            val mockCurrent = generateMockWeather(city)
-            return@withContext Result.success(
-                CombinedWeatherData(current = mockCurrent, forecast = null, airPollution = null)
-            )
+        val cacheKey = cityToCacheKey(city)
+        if (!forceRefresh) {
+            getFreshCompleteWeather(cacheKey)?.let { return@withContext Result.success(it) }
         }
         
-        // Check rate limit (we'll make up to 3 calls)
-        if (!rateLimiter.canMakeRequest()) {
-            val waitTime = rateLimiter.getWaitTimeMs()
-            if (waitTime > 0) delay(waitTime)
+        knownFailure(city)?.let { return@withContext Result.failure(it) }
+        
+        if (!circuitBreaker.allowRequest()) {
+            Log.d(TAG, "API unreachable, offline data for complete weather: $city")
+            return@withContext Result.success(offlineComplete(cacheKey, cityRefresh(city, cacheKey, PendingRefresh.COMPLETE, priority)) { generateMockWeather(city) })
         }
         
         try {
-            // Fetch current weather first (required)
-            rateLimiter.recordRequest()
-            val currentWeather = apiService.getCurrentWeather(city, apiKey, units)
-            
-            // Fetch forecast and air quality in parallel
-            val forecastDeferred = async {
-                try {
-                    rateLimiter.recordRequest()
-                    apiService.getForecast(city, apiKey, units)
-                } catch (e: Exception) {
-                    Log.w(TAG, "Failed to fetch forecast: ${e.message}")
-                    null
-                }
-            }
-            
-            val airPollutionDeferred = async {
-                try {
-                    rateLimiter.recordRequest()
-                    apiService.getAirPollution(
-                        currentWeather.coord.lat,
-                        currentWeather.coord.lon,
-                        apiKey
-                    )
-                } catch (e: Exception) {
-                    Log.w(TAG, "Failed to fetch air pollution: ${e.message}")
-                    null
-                }
-            }
-            
-            val forecast = forecastDeferred.await()
-            val airPollution = airPollutionDeferred.await()
-            
-            useMockData = false
-            Result.success(
-                CombinedWeatherData(
-                    current = currentWeather,
-                    forecast = forecast,
-                    airPollution = airPollution
-                )
+            val data = loadCompleteWeather(
+                cacheKey = cacheKey,
+                forceRefresh = forceRefresh,
+                priority = priority,
+                // A city seen before runs all three calls in parallel
+                knownCoord = CityGeocodeCache.resolve(city)?.coord,
+                fetchCurrent = { directive -> fetchCurrentByName(city, directive) },
+                fetchForecast = { directive -> fetchForecastByName(city, directive) },
+                fetchAirPollution = { coord, directive -> fetchAirPollution(coord, directive) }
             )
+            Result.success(data)
         } catch (e: HttpException) {
             Log.e(TAG, "HTTP error: ${e.code()}")
             Result.failure(Exception(handleHttpError(e.code())))
+        } catch (e: RequestDroppedException) {
+            // Shed by the scheduler, not a network problem
+            Result.failure(e)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: JsonParseException) {
+            // The API answered with something unusable: not an outage, and retrying gets the same
+            Log.e(TAG, "Malformed response: ${e.message}")
+            Result.failure(e)
         } catch (e: Exception) {
-            Log.e(TAG, "Network error, switching to mock: ${e.message}")
-            useMockData = true
-            val mockCurrent = generateMockWeather(city)
-            Result.success(
-                CombinedWeatherData(current = mockCurrent, forecast = null, airPollution = null)
-            )
+            Log.e(TAG, "Network error, using offline data: ${e.message}")
+            Result.success(offlineComplete(cacheKey, cityRefresh(city, cacheKey, PendingRefresh.COMPLETE, priority)) { generateMockWeather(city) })
         }
     }
     
@@ -339,78 +395,595 @@ class WeatherRepository(context: Context? = null) {
     suspend fun getCompleteWeatherByCoords(
         lat: Double,
         lon: Double,
-        units: String = "metric"
+        forceRefresh: Boolean = false,
+        priority: RequestPriority = RequestPriority.USER_INTERACTIVE
     ): Result<CombinedWeatherData> = withContext(Dispatchers.IO) {
-        if (useMockData) {
-            Log.d(TAG, "Using mock data for coords: $lat, $lon")
-            val mockCurrent = generateMockWeather("Location", lat, lon)
-            return@withContext Result.success(
-                CombinedWeatherData(current = mockCurrent, forecast = null, airPollution = null)
-            )
+        val cacheKey = coordsCacheKey(lat, lon)
+        if (!forceRefresh) {
+            getFreshCompleteWeather(cacheKey)?.let { return@withContext Result.success(it) }
         }
         
-        if (!rateLimiter.canMakeRequest()) {
-            val waitTime = rateLimiter.getWaitTimeMs()
-            if (waitTime > 0) delay(waitTime)
+        if (!circuitBreaker.allowRequest()) {
+            Log.d(TAG, "API unreachable, offline data for coords: $lat, $lon")
+            return@withContext Result.success(offlineComplete(cacheKey, coordsRefresh(lat, lon, cacheKey, PendingRefresh.COMPLETE, priority)) { generateMockWeather("Location", lat, lon) })
         }
         
         try {
-            // Fetch all data in parallel
-            val currentDeferred = async {
-                rateLimiter.recordRequest()
-                apiService.getWeatherByCoords(lat, lon, apiKey, units)
+            val data = loadCompleteWeather(
+                cacheKey = cacheKey,
+                forceRefresh = forceRefresh,
+                priority = priority,
+                knownCoord = Coord(lon = lon, lat = lat),
+                fetchCurrent = { directive ->
+                    apiService.getWeatherByCoords(lat, lon, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+                },
+                fetchForecast = { directive ->
+                    apiService.getForecastByCoords(lat, lon, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+                },
+                fetchAirPollution = { coord, directive -> fetchAirPollution(coord, directive) }
+            )
+            Result.success(data)
+        } catch (e: HttpException) {
+            Log.e(TAG, "HTTP error: ${e.code()}")
+            Result.failure(Exception(handleHttpError(e.code())))
+        } catch (e: RequestDroppedException) {
+            // Shed by the scheduler, not a network problem
+            Result.failure(e)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: JsonParseException) {
+            // The API answered with something unusable: not an outage, and retrying gets the same
+            Log.e(TAG, "Malformed response: ${e.message}")
+            Result.failure(e)
+        } catch (e: Exception) {
+            Log.e(TAG, "Network error, using offline data: ${e.message}")
+            Result.success(offlineComplete(cacheKey, coordsRefresh(lat, lon, cacheKey, PendingRefresh.COMPLETE, priority)) { generateMockWeather("Location", lat, lon) })
+        }
+    }
+    
+    /**
+     * Fetch only the parts of the complete data whose cache entry has expired
+     * (all of them when forceRefresh, past the HTTP cache as well), reuse the rest, and write
+     * fetched parts back. Current weather failures propagate; forecast/air failures fall back to null.
+     *
+     * @param priority   scheduling class for the calls that go to the network
+     * @param knownCoord location for the air pollution call when known up front (coordinates,
+     *                   or a city in the geocode cache), otherwise it waits for current weather
+     */
+    private suspend fun loadCompleteWeather(
+        cacheKey: String,
+        forceRefresh: Boolean,
+        priority: RequestPriority,
+        knownCoord: Coord?,
+        fetchCurrent: suspend (CacheDirective) -> WeatherResponse,
+        fetchForecast: suspend (CacheDirective) -> ForecastResponse,
+        fetchAirPollution: suspend (Coord, CacheDirective) -> AirPollutionResponse
+    ): CombinedWeatherData = coroutineScope {
+        val now = System.currentTimeMillis()
+        val cached = if (forceRefresh) null else cache?.getEntry(cacheKey)
+        val cachedCurrent = cached?.current?.takeIf { it.isFresh(now) }?.data
+        val cachedForecast = cached?.forecast?.takeIf { it.isFresh(now) }?.data
+        val cachedAirPollution = cached?.airPollution?.takeIf { it.isFresh(now) }?.data
+        
+        val callsNeeded = listOf(cachedCurrent, cachedForecast, cachedAirPollution).count { it == null }
+        Log.d(TAG, "Refreshing $callsNeeded of 3 parts for $cacheKey")
+        
+        val forecastDeferred = if (cachedForecast == null) {
+            async { fetchOptional("forecast") { callApi("forecast", cacheKey, priority, forceRefresh) { fetchForecast(it) } } }
+        } else null
+        
+        val airCoord = knownCoord ?: cachedCurrent?.coord
+        val airPollutionDeferred = if (cachedAirPollution == null && airCoord != null) {
+            async { fetchOptional("air pollution") { fetchAirPollutionShared(airCoord, priority, forceRefresh, fetchAirPollution) } }
+        } else null
+        
+        val current = cachedCurrent ?: callApi("weather", cacheKey, priority, forceRefresh) { fetchCurrent(it) }
+        val fetchedCurrent = current.takeIf { cachedCurrent == null }
+        
+        val fetchedForecast = forecastDeferred?.await()
+        val fetchedAirPollution = when {
+            cachedAirPollution != null -> null
+            airPollutionDeferred != null -> airPollutionDeferred.await()
+            // City lookups need the coordinates from current weather first
+            else -> fetchOptional("air pollution") { fetchAirPollutionShared(current.coord, priority, forceRefresh, fetchAirPollution) }
+        }
+        
+        if (fetchedCurrent != null || fetchedForecast != null || fetchedAirPollution != null) {
+            cache?.cacheComponents(cacheKey, fetchedCurrent, fetchedForecast, fetchedAirPollution)
+        }
+        
+        CombinedWeatherData(
+            current = current,
+            forecast = cachedForecast ?: fetchedForecast,
+            airPollution = cachedAirPollution ?: fetchedAirPollution
+        )
+    }
+    
+    private suspend fun <T> fetchOptional(name: String, fetch: suspend () -> T): T? {
+        return try {
+            fetch()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to fetch $name: ${e.message}")
+            null
+        }
+    }
+    
+    /**
+     * Air pollution is unit-independent, so it is coalesced by coordinates alone
+     */
+    private suspend fun fetchAirPollutionShared(
+        coord: Coord,
+        priority: RequestPriority,
+        forceNetwork: Boolean,
+        fetch: suspend (Coord, CacheDirective) -> AirPollutionResponse
+    ): AirPollutionResponse =
+        callApi("air_pollution", "${coord.lat},${coord.lon}", priority, forceNetwork) { fetch(coord, it) }
+    
+    private suspend fun fetchAirPollution(coord: Coord, directive: CacheDirective): AirPollutionResponse =
+        apiService.getAirPollution(coord.lat, coord.lon, apiKey, directive.cacheControl, directive)
+    
+    /**
+     * Make one API call, sharing it with any concurrent caller for the same endpoint and key
+     * Only the call that actually goes to the network is counted against the rate limit: a
+     * response the HTTP cache answered gives its permit back. While the API key is known to
+     * be rejected, fails at once with the same 401 the API would send, whatever the query.
+     *
+     * @param forceNetwork skip the HTTP cache (forced refreshes); never shares a normal call
+     */
+    private suspend fun <T> callApi(
+        endpoint: String,
+        key: String,
+        priority: RequestPriority = RequestPriority.USER_INTERACTIVE,
+        forceNetwork: Boolean = false,
+        call: suspend (CacheDirective) -> T
+    ): T {
+        if (negativeCache.getForAnyQuery() == WeatherError.InvalidApiKey) {
+            Log.d(TAG, "API key rejected recently, skipping $endpoint for $key")
+            throw HttpException(Response.error<Any>(401, "".toResponseBody()))
+        }
+        val flightKey = if (forceNetwork) "$endpoint|$key|force" else "$endpoint|$key"
+        // Joining a call that is still queued at a lower priority lifts it to ours
+        scheduler.promote(flightKey, priority)
+        return coalescer.execute(flightKey) {
+            // Waits for a permit rather than failing, coalesced callers share one permit
+            val permit = scheduler.acquire(priority, endpoint, flightKey)
+            val directive = CacheDirective(forceNetwork)
+            try {
+                val result = if (endpoint in HEDGED_ENDPOINTS) hedger.execute(endpoint) { call(directive) } else call(directive)
+                if (directive.servedFromCache) {
+                    scheduler.refund(permit)
+                    // Never reached the API, so it can't vouch for it
+                    circuitBreaker.onInconclusive()
+                } else {
+                    circuitBreaker.onSuccess()
+                }
+                result
+            } catch (e: HttpException) {
+                if (e.code() == 429) quotaLedger.onUpstreamRateLimited()
+                // A bad key fails every query the same way
+                if (e.code() == 401) negativeCache.put(key, WeatherError.InvalidApiKey)
+                // The API answered, only server errors count as it being down
+                if (e.code() >= 500) circuitBreaker.onFailure() else circuitBreaker.onSuccess()
+                throw e
+            } catch (e: IOException) {
+                circuitBreaker.onFailure()
+                throw e
+            }
+        }
+    }
+    
+    /**
+     * How many API calls were shared between concurrent callers (process-wide)
+     */
+    fun coalescingStats(): RequestCoalescer.Stats = coalescer.stats()
+    
+    /**
+     * Admissions, queue depth and dropped requests per priority (process-wide)
+     */
+    fun schedulerStats(): RequestScheduler.Stats = scheduler.stats()
+    
+    /**
+     * API calls in the current rate-limit window and since start, per endpoint (process-wide)
+     */
+    fun quotaStats(): QuotaLedger.Stats = quotaLedger.stats()
+    
+    /**
+     * Per-endpoint latency histograms, status codes and connection reuse (process-wide)
+     */
+    fun networkStats(): NetworkTelemetry.Snapshot = RetrofitClient.networkStats()
+    
+    /**
+     * How many hedged second attempts were made and how many beat the first (process-wide)
+     */
+    fun hedgingStats(): RequestHedger.Stats = hedger.stats()
+    
+    /**
+     * Rejected queries remembered and API calls they saved (process-wide)
+     */
+    fun negativeCacheStats(): NegativeCache.Stats = negativeCache.stats()
+    
+    /**
+     * API reachability as seen by the circuit breaker (process-wide), collect to observe transitions
+     */
+    val circuitState: StateFlow<CircuitBreaker.State> get() = circuitBreaker.state
+    
+    /**
+     * Current weather while the API is unreachable: the cached entry if there is one, else mock data
+     * The refresh is queued in the outbox and retried once the network is back.
+     */
+    private suspend fun offlineCurrent(
+        cacheKey: String,
+        retry: PendingRefresh,
+        mock: () -> WeatherResponse
+    ): WeatherResponse {
+        deferRefresh(retry)
+        return cache?.getEntry(cacheKey)?.current?.data ?: mock()
+    }
+    
+    /**
+     * Complete data while the API is unreachable: the freshest real cached data (any part age
+     * within the stale limit) before generated data
+     * The refresh is queued in the outbox and retried once the network is back.
+     */
+    private suspend fun offlineComplete(
+        cacheKey: String,
+        retry: PendingRefresh,
+        mock: () -> WeatherResponse
+    ): CombinedWeatherData {
+        deferRefresh(retry)
+        return cache?.getEntry(cacheKey)?.toCombinedWeatherData()?.copy(isCachedFallback = true)
+            ?: CombinedWeatherData(current = mock(), forecast = null, airPollution = null, isMock = true)
+    }
+    
+    private fun cityRefresh(
+        city: String,
+        cacheKey: String,
+        endpoints: Set<String>,
+        priority: RequestPriority = RequestPriority.USER_INTERACTIVE
+    ) = PendingRefresh(cacheKey, city, 0.0, 0.0, endpoints, priority, System.currentTimeMillis())
+    
+    private fun coordsRefresh(
+        lat: Double,
+        lon: Double,
+        cacheKey: String,
+        endpoints: Set<String>,
+        priority: RequestPriority = RequestPriority.USER_INTERACTIVE
+    ) = PendingRefresh(cacheKey, null, lat, lon, endpoints, priority, System.currentTimeMillis())
+    
+    /**
+     * Queue a refresh for when the network is back, coalesced with any pending one for the location
+     */
+    private fun deferRefresh(refresh: PendingRefresh) {
+        outbox.enqueue(refresh)
+        appContext?.let { OutboxSyncJobService.schedule(it) }
+    }
+    
+    /**
+     * Retry the refreshes that fell back to offline data, most urgent first (run by the sync job)
+     * Stops at the first one that still can't reach the API; the rest wait for the next run.
+     * Fetched data goes to the cache, so the next app open starts warm.
+     *
+     * @return true when nothing is left pending
+     */
+    suspend fun syncPendingRefreshes(): Boolean = withContext(Dispatchers.IO) {
+        // The job can start before a new process has read what is pending
+        outbox.awaitLoaded()
+        for (refresh in outbox.pending()) {
+            if (!syncRefresh(refresh)) break
+            outbox.complete(refresh)
+        }
+        outbox.isEmpty()
+    }
+    
+    /**
+     * @return false when the API still can't be reached and the refresh should stay queued
+     */
+    private suspend fun syncRefresh(refresh: PendingRefresh): Boolean {
+        if (!circuitBreaker.allowRequest()) return false
+        val city = refresh.city
+        val fetchCurrent: suspend (CacheDirective) -> WeatherResponse = { directive ->
+            if (city != null) fetchCurrentByName(city, directive)
+            else apiService.getWeatherByCoords(refresh.lat, refresh.lon, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+        }
+        return try {
+            if (refresh.endpoints == PendingRefresh.CURRENT_ONLY) {
+                val response = callApi("weather", refresh.cacheKey, SYNC_PRIORITY) { fetchCurrent(it) }
+                cache?.cacheWeather(refresh.cacheKey, response)
+            } else {
+                // Parts that are still fresh (e.g. refreshed by the app meanwhile) are skipped
+                loadCompleteWeather(
+                    cacheKey = refresh.cacheKey,
+                    forceRefresh = false,
+                    priority = SYNC_PRIORITY,
+                    knownCoord = if (city == null) Coord(lon = refresh.lon, lat = refresh.lat)
+                                 else CityGeocodeCache.resolve(city)?.coord,
+                    fetchCurrent = fetchCurrent,
+                    fetchForecast = { directive ->
+                        if (city != null) fetchForecastByName(city, directive)
+                        else apiService.getForecastByCoords(refresh.lat, refresh.lon, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+                    },
+                    fetchAirPollution = { coord, directive -> fetchAirPollution(coord, directive) }
+                )
             }
+            Log.d(TAG, "Synced pending refresh for ${refresh.cacheKey}")
+            true
+        } catch (e: HttpException) {
+            // Rate limited or server trouble is worth retrying, anything else (e.g. 404) is not
+            e.code() != 429 && e.code() < 500
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: JsonParseException) {
+            // Would fail the same way on every retry
+            Log.w(TAG, "Dropping pending refresh for ${refresh.cacheKey}, malformed response: ${e.message}")
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "Pending refresh for ${refresh.cacheKey} still failing: ${e.message}")
+            false
+        }
+    }
+    
+    /**
+     * Current weather for many cities at once (map markers, saved locations, dashboards)
+     * Fresh cached entries are used as they are; the rest are fetched as group requests of
+     * up to 20 city IDs, so refreshing a dashboard of provinces costs one call instead of
+     * one per city. Cities without a known ID fall back to single calls, which teaches the
+     * geocode cache for next time. Every result is fanned out into the per-city cache.
+     *
+     * @return conditions per requested city; cities that couldn't be fetched are left out
+     */
+    suspend fun getCurrentWeatherForCities(
+        cities: List<String>,
+        priority: RequestPriority = RequestPriority.VISIBLE_PREFETCH
+    ): Map<String, WeatherResponse> = withContext(Dispatchers.IO) {
+        val results = LinkedHashMap<String, WeatherResponse>()
+        val missing = ArrayList<String>()
+        for (city in cities.distinct()) {
+            val cached = cache?.getCachedWeather(cityToCacheKey(city))
+            if (cached != null) results[city] = cached else missing.add(city)
+        }
+        if (missing.isEmpty()) return@withContext results
+        
+        if (!circuitBreaker.allowRequest()) {
+            // Stale data beats nothing on a dashboard
+            for (city in missing) {
+                cache?.getEntry(cityToCacheKey(city))?.let { results[city] = it.current.data }
+            }
+            return@withContext results
+        }
+        
+        coroutineScope {
+            missing.filter { CityGeocodeCache.resolve(it) != null }
+                .chunked(GROUP_MAX_IDS)
+                .map { chunk -> async { fetchGroup(chunk, priority) } }
+                .forEach { results.putAll(it.await()) }
             
-            val forecastDeferred = async {
-                try {
-                    rateLimiter.recordRequest()
-                    apiService.getForecastByCoords(lat, lon, apiKey, units)
-                } catch (e: Exception) {
-                    Log.w(TAG, "Failed to fetch forecast: ${e.message}")
-                    null
+            // No ID, or the group call didn't return a matching city
+            missing.filter { it !in results && negativeCache.get(it) == null }
+                .map { city ->
+                    async {
+                        city to fetchOptional("weather for $city") {
+                            callApi("weather", cityToCacheKey(city), priority) { fetchCurrentByName(city, it) }
+                        }
+                    }
+                }
+                .forEach { deferred ->
+                    val (city, response) = deferred.await()
+                    if (response != null) {
+                        cache?.cacheWeather(cityToCacheKey(city), response)
+                        results[city] = response
+                    }
                 }
+        }
+        results
+    }
+    
+    /**
+     * One /group call for cities with known IDs, results checked against the geocode cache and cached
+     */
+    private suspend fun fetchGroup(
+        cities: List<String>,
+        priority: RequestPriority
+    ): Map<String, WeatherResponse> {
+        val refs = cities.mapNotNull { city -> CityGeocodeCache.resolve(city)?.let { city to it } }
+        val ids = refs.joinToString(",") { it.second.id.toString() }
+        val response = fetchOptional("group of ${refs.size} cities") {
+            callApi("group", ids, priority) {
+                apiService.getWeatherForCityIds(ids, apiKey, CANONICAL_UNITS, it.cacheControl, it)
             }
-            
-            val airPollutionDeferred = async {
-                try {
-                    rateLimiter.recordRequest()
-                    apiService.getAirPollution(lat, lon, apiKey)
-                } catch (e: Exception) {
-                    Log.w(TAG, "Failed to fetch air pollution: ${e.message}")
-                    null
+        } ?: return emptyMap()
+        
+        val byId = response.list.associateBy { it.id }
+        val results = HashMap<String, WeatherResponse>()
+        for ((city, ref) in refs) {
+            val weather = byId[ref.id] ?: continue
+            if (!CityGeocodeCache.matches(ref, weather)) {
+                // Outdated or wrong ID, look the city up by name instead
+                Log.w(TAG, "City ID ${ref.id} does not match $city, dropping it")
+                CityGeocodeCache.forget(city)
+                continue
+            }
+            cache?.cacheWeather(cityToCacheKey(city), weather)
+            results[city] = weather
+        }
+        Log.d(TAG, "Group call returned ${results.size} of ${refs.size} cities")
+        return results
+    }
+    
+    /**
+     * Current weather by city name, remembering where the city is and its ID for group calls
+     */
+    private suspend fun fetchCurrentByName(city: String, directive: CacheDirective): WeatherResponse =
+        rememberNotFound(city) {
+            apiService.getCurrentWeather(city, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+                .also { CityGeocodeCache.learn(city, it) }
+        }
+    
+    /**
+     * Forecast by city name, which also tells where the city is
+     */
+    private suspend fun fetchForecastByName(city: String, directive: CacheDirective): ForecastResponse =
+        rememberNotFound(city) {
+            apiService.getForecast(city, apiKey, CANONICAL_UNITS, directive.cacheControl, directive)
+                .also { CityGeocodeCache.learn(city, it) }
+        }
+    
+    /**
+     * Run a by-name call, remembering a 404 so the same query fails without a call next time
+     */
+    private suspend fun <T> rememberNotFound(city: String, call: suspend () -> T): T {
+        try {
+            return call()
+        } catch (e: HttpException) {
+            if (e.code() == 404) negativeCache.put(city, WeatherError.CityNotFound)
+            throw e
+        }
+    }
+    
+    /**
+     * Failure for a query the API already rejected, reported like the original HTTP error
+     */
+    private fun knownFailure(city: String): Exception? = negativeCache.get(city)?.let { error ->
+        Log.d(TAG, "Known failure for $city, skipping the call")
+        Exception(handleHttpError(if (error == WeatherError.InvalidApiKey) 401 else 404))
+    }
+    
+    /**
+     * Refresh complete weather for many locations (saved locations), emitting each as it completes
+     *
+     * Locations whose cached data is complete and fresh are emitted first, without a call.
+     * Current conditions for the rest that are known cities come from one group request and
+     * are copied to each location's own coordinate key (when the city's station is within
+     * the nearby radius), so the per-location loads then only fetch forecast and air quality. At most [maxConcurrent] locations load at once, and every call goes through
+     * the scheduler at [priority], so a long list is paced by the quota instead of bursting
+     * through it, and the user's own searches still go first. Results land in the shared cache.
+     */
+    fun refreshLocations(
+        locations: List<LocationQuery>,
+        forceRefresh: Boolean = false,
+        priority: RequestPriority = RequestPriority.VISIBLE_PREFETCH,
+        maxConcurrent: Int = MAX_CONCURRENT_LOCATIONS
+    ): Flow<LocationWeather> = channelFlow {
+        val pending = ArrayList<LocationQuery>()
+        for (location in locations.distinct()) {
+            val fresh = if (forceRefresh) null else getFreshCompleteWeather(coordsCacheKey(location.lat, location.lon))
+            if (fresh != null) send(LocationWeather(location, Result.success(fresh))) else pending.add(location)
+        }
+        if (pending.isEmpty()) return@channelFlow
+        
+        // A forced refresh re-fetches current weather per location anyway
+        val grouped = pending.filter { CityGeocodeCache.resolve(it.name) != null }
+        if (!forceRefresh && grouped.size > 1) {
+            val current = getCurrentWeatherForCities(grouped.map { it.name }, priority)
+            // Coordinate loads never read city entries: put each result where its load looks
+            for (location in grouped) {
+                val weather = current[location.name] ?: continue
+                val distance = SpatialCacheIndex.distanceMeters(
+                    location.lat, location.lon, weather.coord.lat, weather.coord.lon
+                )
+                // A saved place that only shares the city's name keeps its own fetch
+                if (distance > WeatherCache.NEARBY_RADIUS_METERS) continue
+                cache?.copyCurrent(cityToCacheKey(location.name), coordsCacheKey(location.lat, location.lon))
+            }
+        }
+        
+        val permits = Semaphore(maxConcurrent)
+        for (location in pending) {
+            launch {
+                val result = permits.withPermit {
+                    getCompleteWeatherByCoords(location.lat, location.lon, forceRefresh, priority)
                 }
+                send(LocationWeather(location, result))
             }
-            
-            val currentWeather = currentDeferred.await()
-            val forecast = forecastDeferred.await()
-            val airPollution = airPollutionDeferred.await()
-            
-            useMockData = false
-            Result.success(
-                CombinedWeatherData(
-                    current = currentWeather,
-                    forecast = forecast,
-                    airPollution = airPollution
+        }
+    }.flowOn(Dispatchers.IO)
+    
+    /**
+     * Stale-while-revalidate version of getCompleteWeatherByCity
+     * Emits cached data immediately (marked stale when past its TTL), then the network result
+     */
+    fun observeCompleteWeatherByCity(
+        city: String
+    ): Flow<WeatherResult<CombinedWeatherData>> =
+        observeWithCache({ cityToCacheKey(city) }) { getCompleteWeatherByCity(city) }
+    
+    /**
+     * Stale-while-revalidate version of getCompleteWeatherByCoords
+     */
+    fun observeCompleteWeatherByCoords(
+        lat: Double,
+        lon: Double
+    ): Flow<WeatherResult<CombinedWeatherData>> =
+        observeWithCache({ coordsCacheKey(lat, lon) }) { getCompleteWeatherByCoords(lat, lon) }
+    
+    private fun observeWithCache(
+        resolveCacheKey: suspend () -> String,
+        fetch: suspend () -> Result<CombinedWeatherData>
+    ): Flow<WeatherResult<CombinedWeatherData>> = flow {
+        val cacheKey = resolveCacheKey()
+        val cached = cache?.getEntry(cacheKey)
+        if (cached != null) {
+            val isFresh = cached.isCompleteAndFresh()
+            emit(
+                WeatherResult.Success(
+                    cached.toCombinedWeatherData(),
+                    fromCache = true,
+                    isStale = !isFresh,
+                    cachedAt = cached.current.timestamp
                 )
             )
-        } catch (e: HttpException) {
-            Log.e(TAG, "HTTP error: ${e.code()}")
-            Result.failure(Exception(handleHttpError(e.code())))
-        } catch (e: Exception) {
-            Log.e(TAG, "Network error, switching to mock: ${e.message}")
-            useMockData = true
-            val mockCurrent = generateMockWeather("Location", lat, lon)
-            Result.success(
-                CombinedWeatherData(current = mockCurrent, forecast = null, airPollution = null)
-            )
+            // Nothing to revalidate
+            if (isFresh) return@flow
+        }
+        
+        fetch().onSuccess { data ->
+            // Real data on screen beats generated data when the network is down,
+            // and a cached fallback would just repeat what was emitted above
+            if ((data.isMock || data.isCachedFallback) && cached != null) {
+                Log.d(TAG, "Network unavailable, keeping cached data for $cacheKey")
+                return@flow
+            }
+            emit(WeatherResult.Success(data, fromCache = data.isCachedFallback, isStale = data.isCachedFallback))
+        }.onFailure { e ->
+            emit(WeatherResult.Error(e.toWeatherError()))
         }
     }
     
+    /**
+     * Cache key for coordinates: the nearest cached coordinate entry within a couple of km if
+     * there is one, so GPS jitter across a rounding boundary still hits the cache
+     */
+    private suspend fun coordsCacheKey(lat: Double, lon: Double): String =
+        cache?.findNearbyKey(lat, lon) ?: coordsToCacheKey(lat, lon)
+    
+    /**
+     * Complete data for the key when every part is cached and fresh, otherwise null
+     */
+    private suspend fun getFreshCompleteWeather(cacheKey: String): CombinedWeatherData? {
+        val entry = cache?.getEntry(cacheKey) ?: return null
+        if (!entry.isCompleteAndFresh()) return null
+        Log.d(TAG, "Complete cache hit for $cacheKey")
+        return entry.toCombinedWeatherData()
+    }
+    
+    private fun CacheEntry.toCombinedWeatherData() = CombinedWeatherData(
+        current = current.data,
+        forecast = forecast?.data,
+        airPollution = airPollution?.data
+    )
+    
+    /**
+     * Load recently used cache entries from disk into memory (startup)
+     */
+    suspend fun hydrateCache(): Int = cache?.hydrate() ?: 0
+    
     /**
      * Clear the weather cache
      */
     suspend fun clearCache() {
         cache?.clearCache()
+        negativeCache.clear()
     }
     
     private fun handleHttpError(code: Int): String {
@@ -117,6 +117,11 @@ fun MapScreen(
     val defaultLat = uiState.currentLat ?: 12.5
     val defaultLon = uiState.currentLon ?: 104.9
     
+    // Quick-look temperatures for every city marker, one batched request
+    LaunchedEffect(Unit) {
+        weatherViewModel.loadCityConditions(cambodiaCities.map { it.name })
+    }
+    
     // Initialize OSMDroid configuration
     LaunchedEffect(Unit) {
         Configuration.getInstance().load(
@@ -430,7 +435,9 @@ fun MapScreen(
                             fontSize = 18.sp
                         )
                         Text(
-                            text = "Tap to get weather",
+                            text = uiState.cityTemperatures[selectedCity?.name]
+                                ?.let { "$it${if (uiState.isCelsius) "°C" else "°F"} · Tap to get weather" }
+                                ?: "Tap to get weather",
                             color = Color.White.copy(alpha = 0.7f),
                             fontSize = 12.sp
                         )
@@ -21,7 +21,9 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import androidx.lifecycle.viewmodel.compose.viewModel
 import com.example.weatherapp.SavedLocation
+import com.example.weatherapp.viewmodel.WeatherViewModel
 
 // CamWeather theme colors
 private val PurplePrimary = Color(0xFF667eea)
@@ -38,8 +40,18 @@ fun SavedLocationsScreen(
     onSetDefault: (SavedLocation) -> Unit,
     isGuest: Boolean,
     onNavigateToLogin: () -> Unit,
-    modifier: Modifier = Modifier
+    modifier: Modifier = Modifier,
+    weatherViewModel: WeatherViewModel = viewModel()
 ) {
+    val uiState by weatherViewModel.uiState.collectAsState()
+    
+    // Live conditions for every saved location, refreshed in one paced pass
+    LaunchedEffect(savedLocations, isGuest) {
+        if (!isGuest && savedLocations.isNotEmpty()) {
+            weatherViewModel.refreshSavedLocations(savedLocations)
+        }
+    }
+    
     Column(
         modifier = modifier
             .fillMaxSize()
@@ -220,6 +232,9 @@ fun SavedLocationsScreen(
                     items(savedLocations) { location ->
                         SavedLocationCard(
                             location = location,
+                            temperature = uiState.savedLocationTemperatures[location.key]
+                                ?.let { "$it${if (uiState.isCelsius) "°C" else "°F"}" },
+                            isRefreshing = location.key in uiState.refreshingLocations,
                             onClick = { onLocationClick(location) },
                             onDelete = { onDeleteLocation(location) },
                             onSetDefault = { onSetDefault(location) }
@@ -239,6 +254,8 @@ fun SavedLocationsScreen(
 @Composable
 private fun SavedLocationCard(
     location: SavedLocation,
+    temperature: String?,
+    isRefreshing: Boolean,
     onClick: () -> Unit,
     onDelete: () -> Unit,
     onSetDefault: () -> Unit
@@ -319,6 +336,22 @@ private fun SavedLocationCard(
                 )
             }
             
+            // Live temperature
+            if (temperature != null) {
+                Text(
+                    text = temperature,
+                    style = MaterialTheme.typography.titleLarge,
+                    fontWeight = FontWeight.Bold,
+                    color = PurplePrimary
+                )
+            } else if (isRefreshing) {
+                CircularProgressIndicator(
+                    modifier = Modifier.size(20.dp),
+                    strokeWidth = 2.dp,
+                    color = PurplePrimary
+                )
+            }
+            
             // Menu button
             Box {
                 IconButton(onClick = { showMenu = true }) {
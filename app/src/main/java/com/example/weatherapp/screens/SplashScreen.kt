@@ -23,7 +23,9 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import com.example.weatherapp.startup.StartupPipeline
 import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
 
 // 🇰🇭 Beautiful Cambodia Sky Colors
 private val SkyBlueDeep = Color(0xFF2E86AB)
@@ -33,6 +35,10 @@ private val SunriseGold = Color(0xFFFFD700)
 private val AngkorGold = Color(0xFFD4AF37)
 private val WarmWhite = Color(0xFFFFFEFC)
 
+// Long enough for the logo to animate in, never longer than the old fixed splash
+private const val SPLASH_MIN_MS = 800L
+private const val SPLASH_MAX_MS = 2500L
+
 @Composable
 fun SplashScreen(
     onSplashComplete: () -> Unit
@@ -86,9 +92,12 @@ fun SplashScreen(
         label = "glowPulse"
     )
     
+    // Leave as soon as the startup pipeline has the first data cached
     LaunchedEffect(Unit) {
         startAnimation = true
-        delay(2500)
+        val minimumShown = launch { delay(SPLASH_MIN_MS) }
+        StartupPipeline.awaitReady(SPLASH_MAX_MS)
+        minimumShown.join()
         onSplashComplete()
     }
     
@@ -2,6 +2,7 @@ package com.example.weatherapp.screens
 
 import android.Manifest
 import androidx.compose.foundation.background
+import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.rememberScrollState
 import androidx.compose.foundation.shape.RoundedCornerShape
@@ -182,7 +183,10 @@ fun WeatherScreen(
                     // Search Bar
                     OutlinedTextField(
                         value = searchQuery,
-                        onValueChange = { searchQuery = it },
+                        onValueChange = {
+                            searchQuery = it
+                            viewModel.updateSearchSuggestions(it)
+                        },
                         placeholder = { 
                             Text(
                                 "Search city...", 
@@ -238,6 +242,42 @@ fun WeatherScreen(
                         modifier = Modifier.fillMaxWidth()
                     )
                     
+                    // City suggestions from the offline gazetteer
+                    if (searchQuery.isNotBlank() && uiState.searchSuggestions.isNotEmpty()) {
+                        Spacer(modifier = Modifier.height(8.dp))
+                        Card(
+                            shape = RoundedCornerShape(12.dp),
+                            colors = CardDefaults.cardColors(containerColor = Color.White),
+                            modifier = Modifier.fillMaxWidth()
+                        ) {
+                            uiState.searchSuggestions.forEach { city ->
+                                Row(
+                                    modifier = Modifier
+                                        .fillMaxWidth()
+                                        .clickable {
+                                            viewModel.selectSuggestion(city)
+                                            searchQuery = ""
+                                        }
+                                        .padding(horizontal = 16.dp, vertical = 12.dp),
+                                    verticalAlignment = Alignment.CenterVertically
+                                ) {
+                                    Icon(
+                                        imageVector = Icons.Default.LocationOn,
+                                        contentDescription = null,
+                                        tint = PurplePrimary,
+                                        modifier = Modifier.size(18.dp)
+                                    )
+                                    Spacer(modifier = Modifier.width(8.dp))
+                                    Text(
+                                        text = city.label,
+                                        color = Color.DarkGray,
+                                        fontSize = 14.sp
+                                    )
+                                }
+                            }
+                        }
+                    }
+                    
                     Spacer(modifier = Modifier.height(12.dp))
                     
                     // Quick City Chips
@@ -311,7 +351,7 @@ fun WeatherScreen(
                     
                     uiState.lastUpdated?.let { updated ->
                         Text(
-                            text = "Updated: $updated",
+                            text = if (uiState.isStale) "Updated: $updated (outdated)" else "Updated: $updated",
                             fontSize = 12.sp,
                             color = Color.Gray
                         )
@@ -0,0 +1,126 @@
+package com.example.weatherapp.search
+
+import android.content.Context
+import android.util.Log
+import java.text.Normalizer
+
+/**
+ * A place the search box can suggest
+ */
+data class GazetteerCity(
+    val id: Int,          // OpenWeatherMap city ID, 0 when not known
+    val name: String,
+    val country: String,
+    val lat: Double,
+    val lon: Double
+) {
+    val label: String get() = "$name, $country"
+}
+
+/**
+ * Offline city index for search autocomplete
+ * Built once from the bundled assets/gazetteer.tsv (Cambodian provinces and towns plus a
+ * few regional capitals, about fifty cities) into a packed [CityTrie]. At that size a scan
+ * would do as well; the trie is there for the typo-tolerant lookup, which prunes whole
+ * branches instead of scoring every name on each keystroke. Suggestions are exact prefix
+ * matches first, then names a typo or two away, so a misspelt city is offered before it
+ * ever costs an API call.
+ */
+class CityGazetteer private constructor(
+    private val cities: List<GazetteerCity>,
+    private val trie: CityTrie
+) {
+    companion object {
+        private const val TAG = "CityGazetteer"
+        const val ASSET_NAME = "gazetteer.tsv"
+
+        // Too short to tell a typo from a different city
+        private const val MIN_FUZZY_LENGTH = 4
+
+        @Volatile
+        private var instance: CityGazetteer? = null
+
+        /**
+         * The process-wide gazetteer, loaded from assets on first use (call off the main thread)
+         */
+        fun get(context: Context): CityGazetteer {
+            return instance ?: synchronized(this) {
+                instance ?: load(context).also { instance = it }
+            }
+        }
+
+        private fun load(context: Context): CityGazetteer {
+            return try {
+                context.applicationContext.assets.open(ASSET_NAME).bufferedReader().useLines { parse(it) }
+            } catch (e: Exception) {
+                Log.w(TAG, "Gazetteer unavailable, search suggestions disabled: ${e.message}")
+                CityGazetteer(emptyList(), CityTrie.build(emptyList()))
+            }
+        }
+
+        /**
+         * Parse gazetteer lines: id, name, country, lat, lon and optional |-separated
+         * alternate names, tab-separated; # starts a comment
+         */
+        fun parse(lines: Sequence<String>): CityGazetteer {
+            val cities = ArrayList<GazetteerCity>()
+            val keys = ArrayList<Pair<String, Int>>()
+            for (line in lines) {
+                if (line.isBlank() || line.startsWith("#")) continue
+                val fields = line.split('\t')
+                if (fields.size < 5) continue
+                val city = GazetteerCity(
+                    id = fields[0].toIntOrNull() ?: 0,
+                    name = fields[1],
+                    country = fields[2],
+                    lat = fields[3].toDoubleOrNull() ?: continue,
+                    lon = fields[4].toDoubleOrNull() ?: continue
+                )
+                val names = listOf(city.name) + (fields.getOrNull(5)?.split('|') ?: emptyList())
+                names.map { normalize(it) }.filter { it.isNotEmpty() }.distinct()
+                    .forEach { keys.add(it to cities.size) }
+                cities.add(city)
+            }
+            return CityGazetteer(cities, CityTrie.build(keys))
+        }
+
+        /**
+         * Lowercase, accents stripped, punctuation folded into single spaces
+         * "Phnum Pénh, KH" -> "phnum penh"
+         */
+        fun normalize(text: String): String {
+            val decomposed = Normalizer.normalize(text.substringBefore(','), Normalizer.Form.NFD)
+            val out = StringBuilder(decomposed.length)
+            var pendingSpace = false
+            for (c in decomposed) {
+                when {
+                    Character.getType(c) == Character.NON_SPACING_MARK.toInt() -> Unit
+                    c.isLetterOrDigit() -> {
+                        if (pendingSpace && out.isNotEmpty()) out.append(' ')
+                        pendingSpace = false
+                        out.append(c.lowercaseChar())
+                    }
+                    else -> pendingSpace = true
+                }
+            }
+            return out.toString()
+        }
+    }
+
+    /**
+     * Up to [limit] cities for what the user has typed so far
+     */
+    fun suggest(query: String, limit: Int = 5): List<GazetteerCity> {
+        val key = normalize(query)
+        if (key.isEmpty()) return emptyList()
+
+        val matches = trie.prefixMatches(key, limit).toMutableList()
+        if (matches.size < limit && key.length >= MIN_FUZZY_LENGTH) {
+            val maxEdits = if (key.length >= 8) 2 else 1
+            trie.fuzzyPrefixMatches(key, maxEdits, limit).forEach {
+                if (matches.size < limit && it !in matches) matches.add(it)
+            }
+        }
+        return matches.map { cities[it] }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.weatherapp.search
+
+/**
+ * Immutable prefix trie over normalized city names, packed into parallel arrays
+ * Node 0 is the root; a node's children form a sibling chain in label order. Each name
+ * (key) points at a city; several keys can point at one city (alternate names) and one
+ * node can end several keys. Lookups walk the arrays; the only allocations are per-query
+ * scratch arrays and the result.
+ */
+internal class CityTrie private constructor(
+    private val labels: CharArray,
+    private val firstChild: IntArray,
+    private val nextSibling: IntArray,
+    private val firstKey: IntArray,     // First key ending at the node, -1 if none
+    private val nextKey: IntArray,      // Next key ending at the same node, -1 if none
+    private val keyCity: IntArray,
+    private val maxDepth: Int
+) {
+    companion object {
+        /**
+         * @param keys normalized name -> city index; a lower city index ranks higher
+         */
+        fun build(keys: List<Pair<String, Int>>): CityTrie {
+            class Node(val label: Char) {
+                val children = sortedMapOf<Char, Node>()
+                val keys = ArrayList<Int>()
+            }
+
+            val root = Node('\u0000')
+            keys.forEachIndexed { k, (name, _) ->
+                var node = root
+                for (c in name) node = node.children.getOrPut(c) { Node(c) }
+                node.keys.add(k)
+            }
+
+            // Number the nodes breadth-first so siblings sit next to each other
+            val order = ArrayList<Node>()
+            val queue = ArrayDeque<Node>().apply { add(root) }
+            while (queue.isNotEmpty()) {
+                val node = queue.removeFirst()
+                order.add(node)
+                queue.addAll(node.children.values)
+            }
+            val index = HashMap<Node, Int>(order.size * 2)
+            order.forEachIndexed { i, node -> index[node] = i }
+
+            val labels = CharArray(order.size)
+            val firstChild = IntArray(order.size) { -1 }
+            val nextSibling = IntArray(order.size) { -1 }
+            val firstKey = IntArray(order.size) { -1 }
+            val nextKey = IntArray(keys.size) { -1 }
+            order.forEachIndexed { i, node ->
+                labels[i] = node.label
+                val children = node.children.values.map { index.getValue(it) }
+                if (children.isNotEmpty()) firstChild[i] = children.first()
+                children.zipWithNext { a, b -> nextSibling[a] = b }
+                node.keys.zipWithNext { a, b -> nextKey[a] = b }
+                if (node.keys.isNotEmpty()) firstKey[i] = node.keys.first()
+            }
+            return CityTrie(
+                labels, firstChild, nextSibling, firstKey, nextKey,
+                keyCity = IntArray(keys.size) { keys[it].second },
+                maxDepth = keys.maxOfOrNull { it.first.length } ?: 0
+            )
+        }
+    }
+
+    /**
+     * Cities with a name starting with [prefix], best ranked first
+     */
+    fun prefixMatches(prefix: String, limit: Int): IntArray {
+        val node = find(prefix)
+        val best = TopCities(limit)
+        if (node >= 0) collect(node, 0, best, IntArray(labels.size))
+        return best.toArray()
+    }
+
+    /**
+     * Cities with a name that starts with something within [maxEdits] edits (insertions,
+     * deletions, substitutions) of [query], closest first, then best ranked
+     */
+    fun fuzzyPrefixMatches(query: String, maxEdits: Int, limit: Int): IntArray {
+        val best = TopCities(limit)
+        // One Levenshtein row per depth, reused across branches
+        val rows = Array(maxDepth + 1) { IntArray(query.length + 1) }
+        val stack = IntArray(labels.size)
+        for (j in 0..query.length) rows[0][j] = j
+        var child = firstChild[0]
+        while (child >= 0) {
+            fuzzy(child, 1, query, maxEdits, rows, stack, best)
+            child = nextSibling[child]
+        }
+        return best.toArray()
+    }
+
+    private fun find(prefix: String): Int {
+        var node = 0
+        for (c in prefix) {
+            var child = firstChild[node]
+            while (child >= 0 && labels[child] != c) child = nextSibling[child]
+            if (child < 0) return -1
+            node = child
+        }
+        return node
+    }
+
+    /**
+     * Offer every key in the subtree of [node] at edit distance [distance]
+     */
+    private fun collect(node: Int, distance: Int, best: TopCities, stack: IntArray) {
+        var top = 0
+        stack[top++] = node
+        while (top > 0) {
+            val n = stack[--top]
+            var k = firstKey[n]
+            while (k >= 0) {
+                best.offer(keyCity[k], distance)
+                k = nextKey[k]
+            }
+            var child = firstChild[n]
+            while (child >= 0) {
+                stack[top++] = child
+                child = nextSibling[child]
+            }
+        }
+    }
+
+    private fun fuzzy(
+        node: Int,
+        depth: Int,
+        query: String,
+        maxEdits: Int,
+        rows: Array<IntArray>,
+        stack: IntArray,
+        best: TopCities
+    ) {
+        val previous = rows[depth - 1]
+        val row = rows[depth]
+        val c = labels[node]
+        row[0] = depth
+        var rowMin = row[0]
+        for (j in 1..query.length) {
+            val substitution = previous[j - 1] + if (query[j - 1] == c) 0 else 1
+            row[j] = minOf(substitution, previous[j] + 1, row[j - 1] + 1)
+            rowMin = minOf(rowMin, row[j])
+        }
+
+        val distance = row[query.length]
+        if (distance <= maxEdits) {
+            // The whole query is used up: everything below is a candidate
+            collect(node, distance, best, stack)
+            // Deeper names can't come closer than this row's best, so stop unless they can
+            if (distance <= rowMin) return
+        }
+        // No extension of this prefix can get back within reach
+        if (rowMin > maxEdits) return
+
+        var child = firstChild[node]
+        while (child >= 0) {
+            fuzzy(child, depth + 1, query, maxEdits, rows, stack, best)
+            child = nextSibling[child]
+        }
+    }
+
+    /**
+     * Bounded best-N by (distance, city index), deduplicating cities reached through several names
+     */
+    private class TopCities(limit: Int) {
+        private val cities = IntArray(minOf(limit, 64))
+        private val distances = IntArray(cities.size)
+        private var size = 0
+
+        fun offer(city: Int, distance: Int) {
+            for (i in 0 until size) {
+                if (cities[i] != city) continue
+                if (distance >= distances[i]) return
+                // Closer through another name: re-insert at the better position
+                System.arraycopy(cities, i + 1, cities, i, size - i - 1)
+                System.arraycopy(distances, i + 1, distances, i, size - i - 1)
+                size--
+                break
+            }
+            var pos = size
+            while (pos > 0 && better(city, distance, pos - 1)) pos--
+            if (pos >= cities.size) return
+            val moved = minOf(size, cities.size - 1) - pos
+            System.arraycopy(cities, pos, cities, pos + 1, moved)
+            System.arraycopy(distances, pos, distances, pos + 1, moved)
+            cities[pos] = city
+            distances[pos] = distance
+            if (size < cities.size) size++
+        }
+
+        private fun better(city: Int, distance: Int, i: Int): Boolean =
+            distance < distances[i] || (distance == distances[i] && city < cities[i])
+
+        fun toArray(): IntArray = cities.copyOf(size)
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.weatherapp.startup
+
+import android.content.Context
+import android.location.Location
+import android.os.SystemClock
+import android.util.Log
+import com.example.weatherapp.api.RetrofitClient
+import com.example.weatherapp.location.LocationManager
+import com.example.weatherapp.repository.WeatherRepository
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
+
+/**
+ * Cold-start work that runs while the splash screen is up
+ *
+ * Started from MainActivity.onCreate, which it returns to at once: everything, building
+ * the repository included, runs on [Dispatchers.IO]. Pre-connecting to the API host, the
+ * device location fix and loading the disk cache into memory run in parallel; the first
+ * complete fetch for that location (or the default city) follows and lands in the cache.
+ * The splash leaves once [awaitReady] returns, and the home screen reuses the location fix
+ * and finds its data already cached instead of starting from scratch.
+ */
+object StartupPipeline {
+    private const val TAG = "StartupPipeline"
+
+    // Shown until the device location is known
+    const val DEFAULT_CITY = "Phnom Penh"
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private var ready: Job? = null
+    private var locationFix: Deferred<Location?>? = null
+
+    /**
+     * Start the pipeline; later calls (e.g. activity re-creation) do nothing
+     */
+    @Synchronized
+    fun start(context: Context) {
+        if (ready != null) return
+        val appContext = context.applicationContext
+        val startedAt = SystemClock.elapsedRealtime()
+
+        val locationManager = LocationManager(appContext)
+        val fix = scope.async {
+            if (!locationManager.hasLocationPermission()) return@async null
+            try {
+                locationManager.getBestLocation()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.w(TAG, "Location fix failed: ${e.message}")
+                null
+            }
+        }
+        locationFix = fix
+
+        ready = scope.launch {
+            // Before preconnect, as the repository sets up the client's HTTP cache. Its files
+            // are loaded in the background, so WeatherViewModel can build one on the main thread.
+            val repository = WeatherRepository(appContext)
+            RetrofitClient.preconnect()
+
+            // Coordinate lookups resolve through the spatial index, so it must be loaded first
+            val hydration = async { repository.hydrateCache() }
+            val location = fix.await()
+            Log.d(TAG, "Hydrated ${hydration.await()} cache entries")
+
+            val result = if (location != null) {
+                repository.getCompleteWeatherByCoords(location.latitude, location.longitude)
+            } else {
+                repository.getCompleteWeatherByCity(DEFAULT_CITY)
+            }
+            val elapsed = SystemClock.elapsedRealtime() - startedAt
+            Log.d(TAG, "First data ${if (result.isSuccess) "ready" else "failed"} after ${elapsed}ms")
+        }
+    }
+
+    /**
+     * Suspend until the first data is cached, at most [timeoutMs]
+     * Returns immediately when the pipeline was never started.
+     */
+    suspend fun awaitReady(timeoutMs: Long) {
+        val job = synchronized(this) { ready } ?: return
+        withTimeoutOrNull(timeoutMs) { job.join() }
+    }
+
+    /**
+     * The location fix started at launch, handed out once so the first screen doesn't
+     * start a second one; null afterwards (or when the pipeline never ran)
+     */
+    @Synchronized
+    fun takeLocationFix(): Deferred<Location?>? = locationFix.also { locationFix = null }
+}
@@ -0,0 +1,76 @@
+package com.example.weatherapp.sync
+
+import android.app.job.JobInfo
+import android.app.job.JobParameters
+import android.app.job.JobScheduler
+import android.app.job.JobService
+import android.content.ComponentName
+import android.content.Context
+import android.util.Log
+import com.example.weatherapp.repository.WeatherRepository
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.launch
+
+/**
+ * Drains the refresh outbox once the device has a network connection
+ * Scheduled whenever a refresh falls back to offline data; the system holds the job
+ * until the network constraint is met (across reboots), and backs off exponentially
+ * while the API is still unreachable.
+ */
+class OutboxSyncJobService : JobService() {
+    companion object {
+        private const val TAG = "OutboxSyncJob"
+        private const val JOB_ID = 2001
+        private const val INITIAL_BACKOFF_MS = 30_000L
+
+        /**
+         * Schedule a drain, unless one is already pending
+         */
+        fun schedule(context: Context) {
+            val jobScheduler = context.getSystemService(JobScheduler::class.java) ?: return
+            if (jobScheduler.getPendingJob(JOB_ID) != null) return
+
+            val job = JobInfo.Builder(JOB_ID, ComponentName(context, OutboxSyncJobService::class.java))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setBackoffCriteria(INITIAL_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build()
+            if (jobScheduler.schedule(job) == JobScheduler.RESULT_SUCCESS) {
+                Log.d(TAG, "Outbox sync scheduled")
+            }
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    override fun onStartJob(params: JobParameters): Boolean {
+        scope.launch {
+            val drained = try {
+                WeatherRepository(applicationContext).syncPendingRefreshes()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.w(TAG, "Outbox sync failed: ${e.message}")
+                false
+            }
+            jobFinished(params, !drained)
+        }
+        return true
+    }
+
+    override fun onStopJob(params: JobParameters): Boolean {
+        // Lost the network mid-drain, what's left stays in the outbox
+        scope.coroutineContext.cancelChildren()
+        return true
+    }
+
+    override fun onDestroy() {
+        scope.cancel()
+        super.onDestroy()
+    }
+}
@@ -14,7 +14,7 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import coil.compose.AsyncImage
-import com.example.weatherapp.data.model.WeatherResponse
+import com.example.weatherapp.models.api.WeatherResponse
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -139,7 +139,7 @@ fun CurrentWeatherCard(
                     WeatherInfoItem("Wind", "${weather.wind.speed} m/s")
                     WeatherInfoItem("Humidity", "${weather.main.humidity}%")
                     WeatherInfoItem("Pressure", "${weather.main.pressure} hPa")
-                    WeatherInfoItem("Visibility", "${(weather.visibility / 1000f).toInt()} km")
+                    WeatherInfoItem("Visibility", "${((weather.visibility ?: 10000) / 1000f).toInt()} km")
                 }
             }
         }
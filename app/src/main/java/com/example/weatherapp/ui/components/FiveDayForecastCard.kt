@@ -15,8 +15,8 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import coil.compose.AsyncImage
-import com.example.weatherapp.data.model.ForecastItem
-import com.example.weatherapp.data.model.ForecastResponse
+import com.example.weatherapp.models.api.ForecastItem
+import com.example.weatherapp.models.api.ForecastResponse
 import java.text.SimpleDateFormat
 import java.util.*
 
@@ -10,15 +10,15 @@ import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
-import com.example.weatherapp.data.model.AirQualityResponse
-import com.example.weatherapp.data.model.WeatherResponse
+import com.example.weatherapp.models.api.AirPollutionResponse
+import com.example.weatherapp.models.api.WeatherResponse
 import java.text.SimpleDateFormat
 import java.util.*
 
 @Composable
 fun WeatherHighlightsSection(
     weather: WeatherResponse?,
-    airQuality: AirQualityResponse?,
+    airQuality: AirPollutionResponse?,
     modifier: Modifier = Modifier
 ) {
     Column(
@@ -75,7 +75,7 @@ fun WeatherHighlightsSection(
                 HighlightCard(
                     title = "Pressure",
                     value = "${it.main.pressure} hPa",
-                    description = "Visibility ${it.visibility / 1000}km",
+                    description = "Visibility ${(it.visibility ?: 10000) / 1000}km",
                     color = Color(0xFF9C27B0),
                     modifier = Modifier.weight(1f)
                 )
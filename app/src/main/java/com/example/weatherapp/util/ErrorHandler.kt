@@ -1,5 +1,6 @@
 package com.example.weatherapp.util
 
+import com.google.gson.JsonParseException
 import java.io.IOException
 import java.net.SocketTimeoutException
 import java.net.UnknownHostException
@@ -14,6 +15,7 @@ sealed class WeatherError(val message: String) {
     object CityNotFound : WeatherError("City not found. Please check the spelling and try again.")
     object RateLimitExceeded : WeatherError("Too many requests. Please wait a moment before trying again.")
     object InvalidApiKey : WeatherError("API key error. Please contact support.")
+    object InvalidResponse : WeatherError("The weather service sent incomplete data. Please try again later.")
     data class Unknown(val errorMessage: String) : WeatherError(errorMessage)
 }
 
@@ -22,6 +24,7 @@ sealed class WeatherError(val message: String) {
  */
 fun Throwable.toWeatherError(): WeatherError {
     return when (this) {
+        is JsonParseException -> WeatherError.InvalidResponse
         is UnknownHostException -> WeatherError.NoInternet
         is SocketTimeoutException -> WeatherError.Timeout
         is IOException -> WeatherError.NoInternet
@@ -43,37 +46,12 @@ fun Throwable.toWeatherError(): WeatherError {
  * Result wrapper with better error handling
  */
 sealed class WeatherResult<out T> {
-    data class Success<T>(val data: T, val fromCache: Boolean = false) : WeatherResult<T>()
+    data class Success<T>(
+        val data: T,
+        val fromCache: Boolean = false,
+        val isStale: Boolean = false,          // Cached data past its TTL, a refresh is running
+        val cachedAt: Long? = null             // When the cached data was stored (epoch ms)
+    ) : WeatherResult<T>()
     data class Error(val error: WeatherError) : WeatherResult<Nothing>()
     object Loading : WeatherResult<Nothing>()
 }
-
-/**
- * Rate limiter to prevent too many API calls
- */
-class RateLimiter(
-    private val maxRequests: Int = 60,
-    private val windowMs: Long = 60_000L // 1 minute window
-) {
-    private val requestTimestamps = mutableListOf<Long>()
-    
-    @Synchronized
-    fun canMakeRequest(): Boolean {
-        val now = System.currentTimeMillis()
-        // Remove old timestamps
-        requestTimestamps.removeAll { now - it > windowMs }
-        return requestTimestamps.size < maxRequests
-    }
-    
-    @Synchronized
-    fun recordRequest() {
-        requestTimestamps.add(System.currentTimeMillis())
-    }
-    
-    @Synchronized
-    fun getWaitTimeMs(): Long {
-        if (canMakeRequest()) return 0
-        val oldestRequest = requestTimestamps.firstOrNull() ?: return 0
-        return windowMs - (System.currentTimeMillis() - oldestRequest)
-    }
-}
@@ -0,0 +1,96 @@
+package com.example.weatherapp.util
+
+/**
+ * Rate limiter to prevent too many API calls
+ *
+ * Sliding window: a ring of the last [maxRequests] admission times. A request is
+ * admitted when the admission [maxRequests] slots ago is older than the window, so
+ * admission and wait-time checks are O(1). Plain synchronized: its only user,
+ * [com.example.weatherapp.repository.QuotaLedger], already serializes every call
+ * under its own lock, so the monitor here is never contended. There is no blocking
+ * acquire: callers that wait for a permit queue in RequestScheduler, by priority.
+ */
+class RateLimiter(
+    private val maxRequests: Int = 55,    // Free tier allows 60/min, keep a margin for clock skew
+    private val windowMs: Long = 60_000L, // 1 minute window
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    // Admission times, slot = admission count % maxRequests (0 = never used)
+    private val admissions = LongArray(maxRequests)
+    private var admitted = 0L
+
+    /**
+     * Take a permit if one is available right now
+     *
+     * @param limit only admit while fewer than this many requests are in the window,
+     *              so callers can leave part of the budget to others
+     */
+    @Synchronized
+    fun tryAcquire(limit: Int = maxRequests): Boolean = tryAcquireOrWaitMs(limit) == 0L
+
+    /**
+     * Whether a permit is available right now (does not take it)
+     */
+    fun canMakeRequest(limit: Int = maxRequests): Boolean = getWaitTimeMs(limit) == 0L
+
+    /**
+     * How long until a permit frees up (0 if one is available now)
+     */
+    @Synchronized
+    fun getWaitTimeMs(limit: Int = maxRequests): Long =
+        waitFor(limitingAdmission(admitted, limit), clock())
+
+    /**
+     * Replace the window with earlier admission times, oldest first (e.g. ones persisted
+     * before a restart)
+     */
+    @Synchronized
+    fun restore(admissionTimes: List<Long>) {
+        val recent = admissionTimes.takeLast(maxRequests)
+        for (slot in 0 until maxRequests) {
+            admissions[slot] = recent.getOrElse(slot) { 0L }
+        }
+        admitted = recent.size.toLong()
+    }
+
+    /**
+     * Give back the permit taken at [admissionTime] (e.g. for a call that never reached the
+     * network); does nothing when that admission has already left the ring
+     */
+    @Synchronized
+    fun release(admissionTime: Long) {
+        val count = minOf(admitted, maxRequests.toLong()).toInt()
+        val times = MutableList(count) { admissions[((admitted - count + it) % maxRequests).toInt()] }
+        val index = times.lastIndexOf(admissionTime)
+        if (index < 0) return
+        times.removeAt(index)
+        restore(times)
+    }
+
+    /**
+     * Take a permit and return 0, or return how long to wait before trying again
+     */
+    private fun tryAcquireOrWaitMs(limit: Int): Long {
+        val now = clock()
+        val waitMs = waitFor(limitingAdmission(admitted, limit), now)
+        if (waitMs > 0) return waitMs
+        admissions[(admitted % maxRequests).toInt()] = now
+        admitted++
+        return 0
+    }
+
+    /**
+     * The [limit]-th most recent admission: fewer than [limit] requests are in the window
+     * exactly when it has left the window (0 = fewer than [limit] admissions ever)
+     */
+    private fun limitingAdmission(count: Long, limit: Int): Long {
+        val n = limit.coerceIn(1, maxRequests)
+        if (count < n) return 0
+        return admissions[((count - n) % maxRequests).toInt()]
+    }
+
+    private fun waitFor(oldestAdmission: Long, now: Long): Long {
+        if (oldestAdmission == 0L) return 0
+        return (windowMs - (now - oldestAdmission)).coerceAtLeast(0)
+    }
+}
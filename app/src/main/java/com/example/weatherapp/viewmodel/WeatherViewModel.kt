@@ -3,14 +3,24 @@ package com.example.weatherapp.viewmodel
 import android.app.Application
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
+import com.example.weatherapp.SavedLocation
 import com.example.weatherapp.location.LocationManager
 import com.example.weatherapp.models.*
 import com.example.weatherapp.models.api.AirPollutionResponse
 import com.example.weatherapp.models.api.ForecastResponse
 import com.example.weatherapp.models.api.WeatherResponse
 import com.example.weatherapp.repository.CombinedWeatherData
+import com.example.weatherapp.repository.LocationQuery
 import com.example.weatherapp.repository.WeatherRepository
+import com.example.weatherapp.search.CityGazetteer
+import com.example.weatherapp.search.GazetteerCity
+import com.example.weatherapp.startup.StartupPipeline
+import com.example.weatherapp.util.WeatherError
+import com.example.weatherapp.util.WeatherResult
 import com.example.weatherapp.util.toWeatherError
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -18,6 +28,7 @@ import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.launch
 import java.text.SimpleDateFormat
 import java.util.*
+import kotlin.math.roundToInt
 
 data class WeatherUiState(
     val weatherData: WeatherData? = null,
@@ -27,8 +38,14 @@ data class WeatherUiState(
     val currentLat: Double? = null,
     val currentLon: Double? = null,
     val isFromCache: Boolean = false,
+    val isStale: Boolean = false,  // Showing cached data past its TTL
     val lastUpdated: String? = null,
-    val isRefreshing: Boolean = false
+    val isRefreshing: Boolean = false,
+    val cityTemperatures: Map<String, Int> = emptyMap(),  // Quick-look temperature per city, display units
+    val savedLocationTemperatures: Map<String, Int> = emptyMap(),  // Per SavedLocation.key, display units
+    val refreshingLocations: Set<String> = emptySet(),    // SavedLocation.key of saved locations still loading
+    val searchSuggestions: List<GazetteerCity> = emptyList(),
+    val requestGeneration: Long = 0  // Weather request the state was produced by
 )
 
 class WeatherViewModel(application: Application) : AndroidViewModel(application) {
@@ -41,36 +58,81 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
     private val _uiState = MutableStateFlow(WeatherUiState())
     val uiState: StateFlow<WeatherUiState> = _uiState
     
-    private var lastCity: String = "Phnom Penh"
-    private var searchJob: Job? = null
+    private var lastCity: String = StartupPipeline.DEFAULT_CITY
+    
+    // Last combined data in canonical metric units, re-mapped when the display unit changes
+    private var lastCombinedData: CombinedWeatherData? = null
+    
+    // Quick-look conditions for the map's cities by name, canonical metric units
+    private var cityConditions: Map<String, WeatherResponse> = emptyMap()
+    
+    // Saved locations by SavedLocation.key: a saved place can share a name with a map city
+    // and still be somewhere else
+    private var savedConditions: Map<String, WeatherResponse> = emptyMap()
+    
+    private var savedLocationsJob: Job? = null
+    
+    // Single lane for weather loads: the request in flight and its generation
+    // (only touched on the main thread)
+    private var weatherJob: Job? = null
+    private var requestGeneration = 0L
     
     // Debounce delay for search
     private val searchDebounceMs = 500L
     
+    // Offline city index for search suggestions, null until loaded
+    @Volatile
+    private var gazetteer: CityGazetteer? = null
+    
     init {
-        // Try to get device location first, fallback to default city
-        viewModelScope.launch {
-            tryGetDeviceLocation()
+        viewModelScope.launch(Dispatchers.IO) {
+            gazetteer = CityGazetteer.get(application)
         }
+        
+        // Try to get device location first, fallback to default city
+        launchLatest { generation -> tryGetDeviceLocation(generation) }
+    }
+    
+    /**
+     * Start a weather request, cancelling the one in flight
+     * Cancelling the old coroutine also cancels its HTTP calls (unless another caller is
+     * sharing them) and its queued permits, and the generation bump drops anything it
+     * still tries to publish, so only the latest request ever reaches the screen.
+     */
+    private fun launchLatest(block: suspend CoroutineScope.(generation: Long) -> Unit) {
+        weatherJob?.cancel()
+        val generation = ++requestGeneration
+        weatherJob = viewModelScope.launch { block(generation) }
+    }
+    
+    /**
+     * Update the UI state on behalf of request [generation], unless a newer request has started
+     */
+    private inline fun publish(generation: Long, update: (WeatherUiState) -> WeatherUiState) {
+        if (generation != requestGeneration) return
+        _uiState.value = update(_uiState.value).copy(requestGeneration = generation)
     }
     
     /**
      * Try to get weather for device location
      */
-    private suspend fun tryGetDeviceLocation() {
+    private suspend fun tryGetDeviceLocation(generation: Long) {
         if (locationManager.hasLocationPermission()) {
             try {
-                // Use the improved getBestLocation method
-                val location = locationManager.getBestLocation()
+                // The first screen reuses the fix started during splash, later refreshes take a new one
+                val startupFix = StartupPipeline.takeLocationFix()
+                val location = if (startupFix != null) startupFix.await() else locationManager.getBestLocation()
                 
                 if (location != null) {
                     android.util.Log.d("WeatherViewModel", 
                         "Got device location: ${location.latitude}, ${location.longitude}")
-                    searchWeatherByCoords(location.latitude, location.longitude)
+                    loadByCoords(location.latitude, location.longitude, generation)
                     return
                 } else {
                     android.util.Log.w("WeatherViewModel", "Location was null, using default city")
                 }
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 android.util.Log.e("WeatherViewModel", "Location error: ${e.message}")
                 // Fall through to default city
@@ -79,42 +141,111 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
             android.util.Log.w("WeatherViewModel", "No location permission, using default city")
         }
         // Fallback to default city
-        searchWeatherByCity(lastCity)
+        loadByCity(lastCity, generation)
     }
     
     /**
      * Refresh weather using device location
      */
     fun refreshWithDeviceLocation() {
-        viewModelScope.launch {
-            _uiState.value = _uiState.value.copy(isLoading = true, error = null)
-            tryGetDeviceLocation()
+        launchLatest { generation ->
+            publish(generation) { it.copy(isLoading = true, error = null) }
+            tryGetDeviceLocation(generation)
         }
     }
     
+    /**
+     * Switch °C/°F - data is held in metric, so this is a local re-mapping with no I/O
+     */
     fun toggleTemperatureUnit() {
         val currentState = _uiState.value
-        _uiState.value = currentState.copy(isCelsius = !currentState.isCelsius)
-        // Refresh with new unit
-        if (currentState.currentLat != null && currentState.currentLon != null) {
-            searchWeatherByCoords(currentState.currentLat, currentState.currentLon)
-        } else {
-            searchWeatherByCity(lastCity)
+        val isCelsius = !currentState.isCelsius
+        _uiState.value = currentState.copy(
+            isCelsius = isCelsius,
+            weatherData = lastCombinedData?.let { convertToWeatherData(it, isCelsius) }
+                ?: currentState.weatherData,
+            cityTemperatures = cityTemperatures(isCelsius),
+            savedLocationTemperatures = savedLocationTemperatures(isCelsius)
+        )
+    }
+    
+    /**
+     * Load current conditions for a list of cities, batched into as few API calls as possible
+     */
+    fun loadCityConditions(cities: List<String>) {
+        viewModelScope.launch {
+            cityConditions = repository.getCurrentWeatherForCities(cities)
+            _uiState.value = _uiState.value.copy(cityTemperatures = cityTemperatures(_uiState.value.isCelsius))
         }
     }
     
+    /**
+     * Refresh all saved locations in one paced pass; each card updates as its location completes
+     */
+    fun refreshSavedLocations(locations: List<SavedLocation>, forceRefresh: Boolean = false) {
+        savedLocationsJob?.cancel()
+        _uiState.value = _uiState.value.copy(refreshingLocations = locations.map { it.key }.toSet())
+        val byKey = locations.associateBy { it.key }
+        savedLocationsJob = viewModelScope.launch {
+            repository.refreshLocations(
+                byKey.values.map { LocationQuery(it.name, it.lat, it.lon) },
+                forceRefresh = forceRefresh
+            ).collect { update ->
+                val key = SavedLocation.keyOf(update.location.lat, update.location.lon)
+                // Generated data would show made-up temperatures next to real ones
+                update.result.getOrNull()?.takeIf { !it.isMock }?.let { data ->
+                    savedConditions = savedConditions + (key to data.current)
+                }
+                val state = _uiState.value
+                _uiState.value = state.copy(
+                    savedLocationTemperatures = savedLocationTemperatures(state.isCelsius),
+                    refreshingLocations = state.refreshingLocations - key
+                )
+            }
+            _uiState.value = _uiState.value.copy(refreshingLocations = emptySet())
+        }
+    }
+    
+    private fun cityTemperatures(isCelsius: Boolean): Map<String, Int> =
+        cityConditions.mapValues { displayTemp(it.value.main.temp, isCelsius) }
+    
+    private fun savedLocationTemperatures(isCelsius: Boolean): Map<String, Int> =
+        savedConditions.mapValues { displayTemp(it.value.main.temp, isCelsius) }
+    
     /**
      * Search with debouncing to prevent rapid API calls
      */
     fun searchWeatherByCityDebounced(city: String) {
-        searchJob?.cancel()
-        searchJob = viewModelScope.launch {
+        // In the lane, so each keystroke also cancels the previous search
+        launchLatest { generation ->
             delay(searchDebounceMs)
-            searchWeatherByCity(city)
+            if (city.isBlank()) {
+                publish(generation) { it.copy(error = "Please enter a city name") }
+                return@launchLatest
+            }
+            lastCity = city
+            loadByCity(city, generation)
         }
     }
     
+    /**
+     * Suggestions for what is typed so far, answered from the offline gazetteer with no I/O
+     */
+    fun updateSearchSuggestions(query: String) {
+        _uiState.value = _uiState.value.copy(searchSuggestions = gazetteer?.suggest(query) ?: emptyList())
+    }
+    
+    /**
+     * A picked suggestion is looked up by its exact coordinates, never by the typed text
+     */
+    fun selectSuggestion(city: GazetteerCity) {
+        _uiState.value = _uiState.value.copy(searchSuggestions = emptyList())
+        lastCity = city.name
+        searchWeatherByCoords(city.lat, city.lon)
+    }
+    
     fun searchWeatherByCity(city: String) {
+        _uiState.value = _uiState.value.copy(searchSuggestions = emptyList())
         if (city.isBlank()) {
             _uiState.value = _uiState.value.copy(
                 error = "Please enter a city name"
@@ -123,90 +254,122 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
         }
         
         lastCity = city
-        viewModelScope.launch {
-            _uiState.value = _uiState.value.copy(isLoading = true, error = null)
-            
-            val units = if (_uiState.value.isCelsius) "metric" else "imperial"
-            val result = repository.getCompleteWeatherByCity(city, units)
-            
-            result.onSuccess { data ->
-                _uiState.value = _uiState.value.copy(
-                    weatherData = convertToWeatherData(data, _uiState.value.isCelsius),
-                    isLoading = false,
-                    currentLat = data.current.coord.lat,
-                    currentLon = data.current.coord.lon,
-                    lastUpdated = formatLastUpdated(),
-                    error = null
-                )
-            }.onFailure { exception ->
-                val errorMessage = exception.toWeatherError().message
-                _uiState.value = _uiState.value.copy(
-                    isLoading = false,
-                    error = errorMessage
-                )
-            }
-        }
+        launchLatest { generation -> loadByCity(city, generation) }
     }
     
     fun searchWeatherByCoords(lat: Double, lon: Double) {
-        viewModelScope.launch {
-            _uiState.value = _uiState.value.copy(isLoading = true, error = null)
-            
-            val units = if (_uiState.value.isCelsius) "metric" else "imperial"
-            val result = repository.getCompleteWeatherByCoords(lat, lon, units)
-            
-            result.onSuccess { data ->
+        launchLatest { generation -> loadByCoords(lat, lon, generation) }
+    }
+    
+    private suspend fun loadByCity(city: String, generation: Long) {
+        publish(generation) { it.copy(isLoading = true, error = null) }
+        repository.observeCompleteWeatherByCity(city).collect { result ->
+            applyWeatherResult(result, generation) { data -> data.current.coord.lat to data.current.coord.lon }
+        }
+        finishLoading(generation)
+    }
+    
+    private suspend fun loadByCoords(lat: Double, lon: Double, generation: Long) {
+        publish(generation) { it.copy(isLoading = true, error = null) }
+        repository.observeCompleteWeatherByCoords(lat, lon).collect { result ->
+            applyWeatherResult(result, generation) { data ->
                 lastCity = data.current.name
-                _uiState.value = _uiState.value.copy(
-                    weatherData = convertToWeatherData(data, _uiState.value.isCelsius),
+                lat to lon
+            }
+        }
+        finishLoading(generation)
+    }
+    
+    /**
+     * Apply one emission of a stale-while-revalidate stream to the UI state
+     * Cached emissions are shown right away; stale ones keep isRefreshing set until the network
+     * result lands, fresh ones are final
+     */
+    private fun applyWeatherResult(
+        result: WeatherResult<CombinedWeatherData>,
+        generation: Long,
+        coordsOf: (CombinedWeatherData) -> Pair<Double, Double>
+    ) {
+        // Superseded: the newer request owns the screen (and lastCombinedData)
+        if (generation != requestGeneration) return
+        when (result) {
+            is WeatherResult.Success -> {
+                val (lat, lon) = coordsOf(result.data)
+                lastCombinedData = result.data
+                publish(generation) { it.copy(
+                    weatherData = convertToWeatherData(result.data, it.isCelsius),
                     isLoading = false,
+                    isRefreshing = result.isStale,
+                    isFromCache = result.fromCache,
+                    isStale = result.isStale,
                     currentLat = lat,
                     currentLon = lon,
-                    lastUpdated = formatLastUpdated(),
+                    lastUpdated = formatLastUpdated(result.cachedAt ?: System.currentTimeMillis()),
                     error = null
-                )
-            }.onFailure { exception ->
-                val errorMessage = exception.toWeatherError().message
-                _uiState.value = _uiState.value.copy(
+                ) }
+            }
+            is WeatherResult.Error -> {
+                publish(generation) { it.copy(
                     isLoading = false,
-                    error = errorMessage
-                )
+                    isRefreshing = false,
+                    error = result.error.message
+                ) }
             }
+            WeatherResult.Loading -> Unit
         }
     }
     
     /**
-     * Force refresh - bypass cache
+     * Clear progress flags once a stream completes (e.g. network failed after cached data was shown)
+     */
+    private fun finishLoading(generation: Long) {
+        publish(generation) { it.copy(isLoading = false, isRefreshing = false) }
+    }
+    
+    /**
+     * Pull-to-refresh - re-fetches only the parts whose cache entry has expired
      */
     fun forceRefresh() {
-        viewModelScope.launch {
-            _uiState.value = _uiState.value.copy(isRefreshing = true, error = null)
+        launchLatest { generation ->
+            publish(generation) { it.copy(isRefreshing = true, error = null) }
             
-            val units = if (_uiState.value.isCelsius) "metric" else "imperial"
             val lat = _uiState.value.currentLat
             val lon = _uiState.value.currentLon
             
             val result = if (lat != null && lon != null) {
-                repository.getCompleteWeatherByCoords(lat, lon, units)
+                repository.getCompleteWeatherByCoords(lat, lon)
             } else {
-                repository.getCompleteWeatherByCity(lastCity, units)
+                repository.getCompleteWeatherByCity(lastCity)
             }
+            if (generation != requestGeneration) return@launchLatest
             
             result.onSuccess { data ->
-                _uiState.value = _uiState.value.copy(
-                    weatherData = convertToWeatherData(data, _uiState.value.isCelsius),
+                // Offline: generated data never replaces real data on screen
+                if (data.isMock && lastCombinedData?.isMock == false) {
+                    publish(generation) { it.copy(
+                        isRefreshing = false,
+                        error = WeatherError.NoInternet.message
+                    ) }
+                    return@launchLatest
+                }
+                // Cached fallback or generated data is not a fresh update, like in applyWeatherResult
+                val offline = data.isMock || data.isCachedFallback
+                lastCombinedData = data
+                publish(generation) { it.copy(
+                    weatherData = convertToWeatherData(data, it.isCelsius),
                     isRefreshing = false,
                     currentLat = data.current.coord.lat,
                     currentLon = data.current.coord.lon,
-                    lastUpdated = formatLastUpdated(),
-                    isFromCache = false,
+                    lastUpdated = if (offline) it.lastUpdated else formatLastUpdated(),
+                    isFromCache = data.isCachedFallback,
+                    isStale = data.isCachedFallback,
                     error = null
-                )
+                ) }
             }.onFailure { exception ->
-                _uiState.value = _uiState.value.copy(
+                publish(generation) { it.copy(
                     isRefreshing = false,
                     error = exception.toWeatherError().message
-                )
+                ) }
             }
         }
     }
@@ -223,9 +386,9 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
      */
     fun hasLocationPermission(): Boolean = locationManager.hasLocationPermission()
     
-    private fun formatLastUpdated(): String {
+    private fun formatLastUpdated(timestamp: Long = System.currentTimeMillis()): String {
         val sdf = SimpleDateFormat("h:mm a", Locale.getDefault())
-        return sdf.format(Date())
+        return sdf.format(Date(timestamp))
     }
     
     /**
@@ -241,30 +404,22 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
         val iconCode = current.weather.firstOrNull()?.icon ?: "01d"
         
         // Calculate daily high/low from forecast if available
-        val (dailyHigh, dailyLow) = calculateDailyHighLow(current, forecast)
-        
-        // Get wind speed with proper unit display
-        // OpenWeatherMap returns: metric = m/s, imperial = mph
-        val windSpeedValue = current.wind.speed
-        val windSpeedDisplay = if (isCelsius) {
-            // Convert m/s to km/h for display
-            (windSpeedValue * 3.6).toInt()
-        } else {
-            windSpeedValue.toInt()
-        }
+        val (dailyHigh, dailyLow) = calculateDailyHighLow(current, forecast, isCelsius)
         
         return WeatherData(
             location = "${current.name}, ${current.sys.country}",
             country = current.sys.country,
-            currentTemp = current.main.temp.toInt(),
+            currentTemp = displayTemp(current.main.temp, isCelsius),
             condition = description.replaceFirstChar { it.uppercase() },
             highTemp = dailyHigh,
             lowTemp = dailyLow,
-            feelsLike = current.main.feels_like.toInt(),
+            feelsLike = displayTemp(current.main.feels_like, isCelsius),
             humidity = current.main.humidity,
-            windSpeed = windSpeedDisplay,
+            windSpeed = displayWindSpeed(current.wind.speed, isCelsius).toInt(),
+            windUnit = windUnit(isCelsius),
             pressure = current.main.pressure,
-            visibility = (current.visibility ?: 10000) / 1000.0,
+            visibility = displayVisibility(current.visibility ?: 10000, isCelsius),
+            visibilityUnit = if (isCelsius) "km" else "mi",
             airQuality = convertAirQuality(airPollution),
             uvIndex = UVIndex(
                 index = estimateUVIndex(current),
@@ -284,10 +439,14 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
     /**
      * Calculate daily high/low from forecast data
      */
-    private fun calculateDailyHighLow(current: WeatherResponse, forecast: ForecastResponse?): Pair<Int, Int> {
+    private fun calculateDailyHighLow(
+        current: WeatherResponse,
+        forecast: ForecastResponse?,
+        isCelsius: Boolean
+    ): Pair<Int, Int> {
+        val currentTemp = displayTemp(current.main.temp, isCelsius)
         if (forecast == null || forecast.list.isEmpty()) {
             // Fallback to current temp with estimation
-            val currentTemp = current.main.temp.toInt()
             return Pair(currentTemp + 2, currentTemp - 4)
         }
         
@@ -302,13 +461,13 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
         if (todayForecasts.isEmpty()) {
             // Use first day's forecasts
             val firstDayForecasts = forecast.list.take(8)
-            val high = firstDayForecasts.maxOfOrNull { it.main.temp_max }?.toInt() ?: current.main.temp.toInt()
-            val low = firstDayForecasts.minOfOrNull { it.main.temp_min }?.toInt() ?: current.main.temp.toInt()
+            val high = firstDayForecasts.maxOfOrNull { it.main.temp_max }?.let { displayTemp(it, isCelsius) } ?: currentTemp
+            val low = firstDayForecasts.minOfOrNull { it.main.temp_min }?.let { displayTemp(it, isCelsius) } ?: currentTemp
             return Pair(high, low)
         }
         
-        val high = todayForecasts.maxOfOrNull { it.main.temp_max }?.toInt() ?: current.main.temp.toInt()
-        val low = todayForecasts.minOfOrNull { it.main.temp_min }?.toInt() ?: current.main.temp.toInt()
+        val high = todayForecasts.maxOfOrNull { it.main.temp_max }?.let { displayTemp(it, isCelsius) } ?: currentTemp
+        val low = todayForecasts.minOfOrNull { it.main.temp_min }?.let { displayTemp(it, isCelsius) } ?: currentTemp
         
         return Pair(high, low)
     }
@@ -356,15 +515,16 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
         return forecast.list.take(8).mapIndexed { index, item ->
             val time = if (index == 0) "Now" else timeFormat.format(Date(item.dt * 1000))
             val icon = getWeatherEmoji(item.weather.firstOrNull()?.id ?: 800, item.sys.pod == "d")
-            val windSpeed = if (isCelsius) (item.wind.speed * 3.6) else item.wind.speed
+            val windSpeed = displayWindSpeed(item.wind.speed, isCelsius)
             
             HourlyForecast(
                 time = time,
-                temp = item.main.temp.toInt(),
+                temp = displayTemp(item.main.temp, isCelsius),
                 condition = item.weather.firstOrNull()?.description?.replaceFirstChar { it.uppercase() } ?: "Clear",
                 icon = icon,
                 humidity = item.main.humidity,
-                windSpeed = windSpeed
+                windSpeed = windSpeed,
+                windUnit = windUnit(isCelsius)
             )
         }
     }
@@ -390,8 +550,8 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
         return dailyGroups.entries.take(5).map { (_, items) ->
             val firstItem = items.first()
             val date = Date(firstItem.dt * 1000)
-            val highTemp = items.maxOfOrNull { it.main.temp_max }?.toInt() ?: 0
-            val lowTemp = items.minOfOrNull { it.main.temp_min }?.toInt() ?: 0
+            val highTemp = items.maxOfOrNull { it.main.temp_max }?.let { displayTemp(it, isCelsius) } ?: 0
+            val lowTemp = items.minOfOrNull { it.main.temp_min }?.let { displayTemp(it, isCelsius) } ?: 0
             
             // Get the most common weather condition for the day
             val mainCondition = items
@@ -408,7 +568,7 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
             
             // Calculate average wind speed
             val avgWind = items.map { it.wind.speed }.average()
-            val windDisplay = if (isCelsius) avgWind * 3.6 else avgWind
+            val windDisplay = displayWindSpeed(avgWind, isCelsius)
             
             DailyForecast(
                 day = dayFormat.format(date),
@@ -418,11 +578,29 @@ class WeatherViewModel(application: Application) : AndroidViewModel(application)
                 condition = mainCondition,
                 icon = getWeatherEmoji(conditionId, true),
                 precipChance = avgPop,
-                windSpeed = windDisplay
+                windSpeed = windDisplay,
+                windUnit = windUnit(isCelsius)
             )
         }
     }
     
+    /**
+     * Unit conversion from the repository's canonical metric data
+     * °C -> °F, m/s -> km/h (metric display) or mph, metres -> km or miles
+     */
+    private fun displayTemp(celsius: Double, isCelsius: Boolean): Int =
+        (if (isCelsius) celsius else celsius * 9 / 5 + 32).toInt()
+    
+    private fun displayWindSpeed(metersPerSecond: Double, isCelsius: Boolean): Double =
+        if (isCelsius) metersPerSecond * 3.6 else metersPerSecond * 2.23694
+    
+    private fun windUnit(isCelsius: Boolean): String = if (isCelsius) "km/h" else "mph"
+    
+    private fun displayVisibility(meters: Int, isCelsius: Boolean): Double {
+        val distance = if (isCelsius) meters / 1000.0 else meters / 1609.344
+        return (distance * 10).roundToInt() / 10.0
+    }
+    
     /**
      * Get weather emoji based on condition code
      * https://openweathermap.org/weather-conditions
@@ -0,0 +1,104 @@
+package com.example.weatherapp.api
+
+import com.example.weatherapp.models.api.ForecastResponse
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.InputStreamReader
+
+/**
+ * JVM benchmark: forecast decoding with Gson's reflective adapter vs [WeatherJsonAdapters]
+ * Decodes the same 40-item forecast body the way GsonConverterFactory does (JsonReader over
+ * the body's char stream) and prints cold (first decode on a fresh Gson) and warm timings.
+ *
+ * Opt-in, skipped in normal test runs. Run with:
+ *   ./gradlew :app:testDebugUnitTest -Pbenchmark --tests "*WeatherJsonAdaptersBenchmark*" -i
+ */
+class WeatherJsonAdaptersBenchmark {
+
+    private val body = forecastJson(items = 40).toByteArray(Charsets.UTF_8)
+
+    @Before
+    fun onlyWhenRequested() {
+        assumeTrue(System.getProperty(BENCHMARK_PROPERTY) == "true")
+    }
+
+    @Test
+    fun forecastDecoding() {
+        val reflective = { Gson() }
+        val streaming = { GsonBuilder().registerTypeAdapterFactory(WeatherJsonAdapters).create() }
+
+        // Same values for everything the app reads
+        val expected = decode(reflective())
+        val actual = decode(streaming())
+        assertEquals(expected.list.size, actual.list.size)
+        expected.list.zip(actual.list).forEach { (e, a) ->
+            assertEquals(e.dt, a.dt)
+            assertEquals(e.dt_txt, a.dt_txt)
+            assertEquals(e.main.temp, a.main.temp, 0.0)
+            assertEquals(e.main.humidity, a.main.humidity)
+            assertEquals(e.weather, a.weather)
+            assertEquals(e.wind.speed, a.wind.speed, 0.0)
+            assertEquals(e.pop, a.pop)
+            assertEquals(e.rain, a.rain)
+        }
+        assertEquals(expected.city.name, actual.city.name)
+
+        report("reflective", reflective)
+        report("streaming ", streaming)
+    }
+
+    private fun report(name: String, newGson: () -> Gson) {
+        // Cold: first decode on a new Gson pays for adapter creation
+        val coldRuns = 20
+        var coldNs = 0L
+        repeat(coldRuns) {
+            val gson = newGson()
+            val start = System.nanoTime()
+            decode(gson)
+            coldNs += System.nanoTime() - start
+        }
+
+        val gson = newGson()
+        repeat(WARMUP_ITERATIONS) { decode(gson) }
+        val start = System.nanoTime()
+        repeat(MEASURED_ITERATIONS) { decode(gson) }
+        val warmNs = (System.nanoTime() - start) / MEASURED_ITERATIONS
+
+        println("$name cold first decode: ${coldNs / coldRuns / 1000} µs, warm: ${warmNs / 1000} µs/op")
+    }
+
+    private fun decode(gson: Gson): ForecastResponse {
+        val reader = gson.newJsonReader(InputStreamReader(ByteArrayInputStream(body), Charsets.UTF_8))
+        return gson.getAdapter(ForecastResponse::class.java).read(reader)
+    }
+
+    private fun forecastJson(items: Int): String = buildString {
+        append("""{"cod":"200","message":0,"cnt":$items,"list":[""")
+        for (i in 0 until items) {
+            if (i > 0) append(',')
+            val dt = 1_700_000_000L + i * 10_800L
+            append(
+                """{"dt":$dt,"main":{"temp":${28 + i % 7}.4,"feels_like":31.2,"temp_min":27.1,"temp_max":29.8,""" +
+                    """"pressure":1010,"sea_level":1010,"grnd_level":1008,"humidity":${60 + i % 30},"temp_kf":0.5},""" +
+                    """"weather":[{"id":500,"main":"Rain","description":"light rain","icon":"10d"}],""" +
+                    """"clouds":{"all":${i % 100}},"wind":{"speed":3.${i % 10},"deg":${i * 9 % 360},"gust":5.1},""" +
+                    """"visibility":10000,"pop":0.${i % 10},"rain":{"3h":0.42},"sys":{"pod":"d"},""" +
+                    """"dt_txt":"2023-11-14 ${(i * 3) % 24}:00:00"}"""
+            )
+        }
+        append("""],"city":{"id":1821306,"name":"Phnom Penh","coord":{"lat":11.5625,"lon":104.916},""")
+        append(""""country":"KH","population":1573544,"timezone":25200,"sunrise":1699916000,"sunset":1699958000}}""")
+    }
+
+    companion object {
+        // Set by the build when -Pbenchmark is passed
+        private const val BENCHMARK_PROPERTY = "weatherapp.benchmark"
+        private const val WARMUP_ITERATIONS = 2_000
+        private const val MEASURED_ITERATIONS = 5_000
+    }
+}
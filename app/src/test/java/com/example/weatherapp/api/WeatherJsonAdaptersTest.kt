@@ -0,0 +1,164 @@
+package com.example.weatherapp.api
+
+import com.example.weatherapp.models.api.AirPollutionResponse
+import com.example.weatherapp.models.api.ForecastResponse
+import com.example.weatherapp.models.api.GroupWeatherResponse
+import com.example.weatherapp.models.api.WeatherResponse
+import com.google.gson.GsonBuilder
+import com.google.gson.JsonParseException
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
+import org.junit.Test
+
+class WeatherJsonAdaptersTest {
+
+    private val gson = GsonBuilder().registerTypeAdapterFactory(WeatherJsonAdapters).create()
+
+    private val coord = """{"lon":104.916,"lat":11.5625}"""
+    private val main = """{"temp":31.4,"feels_like":36.2,"temp_min":30.1,"temp_max":32.0,"pressure":1009,"humidity":62,"sea_level":1009}"""
+    private val wind = """{"speed":3.6,"deg":200,"gust":5.1}"""
+
+    private fun currentJson(
+        coord: String? = this.coord,
+        main: String? = this.main,
+        wind: String? = this.wind
+    ): String = listOfNotNull(
+        coord?.let { """"coord":$it""" },
+        """"weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"}]""",
+        main?.let { """"main":$it""" },
+        wind?.let { """"wind":$it""" },
+        """"clouds":{"all":75}""",
+        """"sys":{"type":1,"country":"KH","sunrise":1699916000,"sunset":1699958000}""",
+        """"name":"Phnom Penh"""",
+        """"dt":1699930000""",
+        """"visibility":10000""",
+        """"timezone":25200""",
+        """"id":1821306""",
+        """"base":"stations""""
+    ).joinToString(",", prefix = "{", postfix = "}")
+
+    private fun forecastJson(cityCoord: String? = coord): String {
+        val item = """{"dt":1699930800,"main":$main,"weather":[{"id":500,"main":"Rain","description":"light rain","icon":"10d"}],""" +
+            """"clouds":{"all":40},"wind":$wind,"visibility":10000,"pop":0.3,"rain":{"3h":0.42},"sys":{"pod":"d"},"dt_txt":"2023-11-14 03:00:00"}"""
+        val city = listOfNotNull(
+            """"id":1821306""",
+            """"name":"Phnom Penh"""",
+            cityCoord?.let { """"coord":$it""" },
+            """"country":"KH"""",
+            """"timezone":25200"""
+        ).joinToString(",", prefix = "{", postfix = "}")
+        return """{"cod":"200","message":0,"cnt":1,"list":[$item],"city":$city}"""
+    }
+
+    @Test
+    fun decodesCurrentWeather() {
+        val response = gson.fromJson(currentJson(), WeatherResponse::class.java)
+
+        assertEquals(11.5625, response.coord.lat, 0.0)
+        assertEquals(104.916, response.coord.lon, 0.0)
+        assertEquals(31.4, response.main.temp, 0.0)
+        assertEquals(36.2, response.main.feels_like, 0.0)
+        assertEquals(62, response.main.humidity)
+        assertEquals(1009, response.main.pressure)
+        assertEquals(3.6, response.wind.speed, 0.0)
+        assertEquals(5.1, response.wind.gust!!, 0.0)
+        assertEquals("broken clouds", response.weather.single().description)
+        assertEquals("KH", response.sys.country)
+        assertEquals("Phnom Penh", response.name)
+        assertEquals(1821306, response.id)
+        // Skipped when decoding
+        assertNull(response.main.sea_level)
+    }
+
+    @Test
+    fun optionalFieldsMayBeMissingOrNull() {
+        val response = gson.fromJson(
+            currentJson(wind = """{"speed":0.5,"gust":null}"""),
+            WeatherResponse::class.java
+        )
+        assertEquals(0.5, response.wind.speed, 0.0)
+        assertEquals(0, response.wind.deg)
+        assertNull(response.wind.gust)
+    }
+
+    @Test
+    fun missingTemperatureFailsInsteadOfDecodingAsZero() {
+        val main = """{"feels_like":36.2,"temp_min":30.1,"temp_max":32.0,"pressure":1009,"humidity":62}"""
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(currentJson(main = main), WeatherResponse::class.java)
+        }
+    }
+
+    @Test
+    fun missingHumidityFails() {
+        val main = """{"temp":31.4,"feels_like":36.2,"temp_min":30.1,"temp_max":32.0,"pressure":1009}"""
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(currentJson(main = main), WeatherResponse::class.java)
+        }
+    }
+
+    @Test
+    fun missingCoordFails() {
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(currentJson(coord = null), WeatherResponse::class.java)
+        }
+    }
+
+    @Test
+    fun coordWithoutLatitudeFailsInsteadOfDecodingAsZero() {
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(currentJson(coord = """{"lon":104.916}"""), WeatherResponse::class.java)
+        }
+    }
+
+    @Test
+    fun missingWindSpeedFails() {
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(currentJson(wind = """{"deg":200}"""), WeatherResponse::class.java)
+        }
+    }
+
+    @Test
+    fun decodesForecast() {
+        val response = gson.fromJson(forecastJson(), ForecastResponse::class.java)
+
+        val item = response.list.single()
+        assertEquals(1699930800L, item.dt)
+        assertEquals(31.4, item.main.temp, 0.0)
+        assertEquals(0.3, item.pop!!, 0.0)
+        assertEquals(0.42, item.rain!!.`3h`!!, 0.0)
+        assertEquals("d", item.sys.pod)
+        assertEquals("2023-11-14 03:00:00", item.dt_txt)
+        assertEquals(1821306, response.city.id)
+        assertEquals(11.5625, response.city.coord.lat, 0.0)
+    }
+
+    @Test
+    fun forecastWithoutCityCoordFails() {
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(forecastJson(cityCoord = null), ForecastResponse::class.java)
+        }
+    }
+
+    @Test
+    fun decodesAirPollution() {
+        val json = """{"coord":$coord,"list":[{"main":{"aqi":3},"components":{"co":230.3,"no":0.1,""" +
+            """"no2":12.5,"o3":48.0,"so2":3.2,"pm2_5":27.4,"pm10":35.1,"nh3":1.9},"dt":1699930000}]}"""
+        val response = gson.fromJson(json, AirPollutionResponse::class.java)
+
+        val item = response.list.single()
+        assertEquals(3, item.main.aqi)
+        assertEquals(27.4, item.components.pm2_5, 0.0)
+        assertEquals(35.1, item.components.pm10, 0.0)
+        assertEquals(104.916, response.coord.lon, 0.0)
+    }
+
+    @Test
+    fun groupWithAnIncompleteCityFails() {
+        val json = """{"cnt":2,"list":[${currentJson()},${currentJson(coord = null)}]}"""
+        assertThrows(JsonParseException::class.java) {
+            gson.fromJson(json, GroupWeatherResponse::class.java)
+        }
+    }
+}
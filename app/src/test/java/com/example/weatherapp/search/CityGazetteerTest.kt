@@ -0,0 +1,48 @@
+package com.example.weatherapp.search
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class CityGazetteerTest {
+
+    private val gazetteer = CityGazetteer.parse(
+        sequenceOf(
+            "# id\tname\tcountry\tlat\tlon\talternates",
+            "1821306\tPhnom Penh\tKH\t11.5564\t104.9282\tPhnum Penh|Phnum Pénh",
+            "1822214\tSiem Reap\tKH\t13.3633\t103.8564\tSiemreab",
+            "",
+            "0\tKampot\tKH\t10.6104\t104.1815",
+            "0\tBroken line\tKH"
+        )
+    )
+
+    private fun names(query: String) = gazetteer.suggest(query).map { it.name }
+
+    @Test
+    fun suggestsByPrefixOfAnyName() {
+        assertEquals(listOf("Phnom Penh"), names("phn"))
+        assertEquals(listOf("Siem Reap"), names("siemr"))
+    }
+
+    @Test
+    fun queryIsNormalized() {
+        assertEquals(listOf("Phnom Penh"), names("  PHNUM  Pénh, KH"))
+    }
+
+    @Test
+    fun misspeltQueryFallsBackToFuzzyMatches() {
+        assertEquals(listOf("Kampot"), names("kanpot"))
+        assertEquals(listOf("Siem Reap"), names("seim reap"))
+    }
+
+    @Test
+    fun shortQueriesAreNotFuzzy() {
+        assertEquals(emptyList<String>(), names("kap"))
+    }
+
+    @Test
+    fun skipsCommentsAndMalformedLines() {
+        assertEquals(emptyList<String>(), names("broken"))
+        assertEquals(emptyList<String>(), names(""))
+    }
+}
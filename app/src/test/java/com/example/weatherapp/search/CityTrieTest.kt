@@ -0,0 +1,73 @@
+package com.example.weatherapp.search
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Test
+
+class CityTrieTest {
+
+    // City index is the rank: lower ranks higher
+    private val trie = CityTrie.build(
+        listOf(
+            "phnom penh" to 0,
+            "phnum penh" to 0,
+            "siem reap" to 1,
+            "sihanoukville" to 2,
+            "kampong som" to 2,
+            "kampot" to 3,
+            "kampong cham" to 4,
+            "battambang" to 5,
+            "kep" to 6,
+            "kap" to 7
+        )
+    )
+
+    @Test
+    fun prefixMatchesAreRankedByCity() {
+        assertArrayEquals(intArrayOf(1, 2), trie.prefixMatches("si", 5))
+        assertArrayEquals(intArrayOf(2, 3, 4), trie.prefixMatches("kamp", 5))
+    }
+
+    @Test
+    fun prefixMatchesStopAtLimit() {
+        assertArrayEquals(intArrayOf(0, 1), trie.prefixMatches("", 2))
+        assertArrayEquals(intArrayOf(2), trie.prefixMatches("kamp", 1))
+    }
+
+    @Test
+    fun unknownPrefixMatchesNothing() {
+        assertArrayEquals(intArrayOf(), trie.prefixMatches("x", 5))
+        assertArrayEquals(intArrayOf(), trie.prefixMatches("siem reapz", 5))
+    }
+
+    @Test
+    fun cityReachedThroughSeveralNamesIsListedOnce() {
+        assertArrayEquals(intArrayOf(0), trie.prefixMatches("ph", 5))
+        assertArrayEquals(intArrayOf(0), trie.prefixMatches("phn", 5))
+    }
+
+    @Test
+    fun fuzzyMatchesToleratePrefixTypos() {
+        // Deletion, substitution and insertion
+        assertArrayEquals(intArrayOf(5), trie.fuzzyPrefixMatches("batambang", 1, 5))
+        assertArrayEquals(intArrayOf(1), trie.fuzzyPrefixMatches("siem reep", 1, 5))
+        assertArrayEquals(intArrayOf(2), trie.fuzzyPrefixMatches("sihanoukk", 1, 5))
+    }
+
+    @Test
+    fun fuzzyMatchesRespectMaxEdits() {
+        assertArrayEquals(intArrayOf(), trie.fuzzyPrefixMatches("sihanukvile", 1, 5))
+        assertArrayEquals(intArrayOf(2), trie.fuzzyPrefixMatches("sihanukvile", 2, 5))
+    }
+
+    @Test
+    fun fuzzyMatchesListClosestFirstThenByRank() {
+        // "kap" itself first; "kamp..." and "kep" are an edit away and keep their rank order
+        assertArrayEquals(intArrayOf(7, 2, 3, 4, 6), trie.fuzzyPrefixMatches("kap", 1, 5))
+    }
+
+    @Test
+    fun fuzzyMatchListsACityOnceWhateverNamesReachIt() {
+        // Exact through "phnum penh", an edit away through "phnom penh"
+        assertArrayEquals(intArrayOf(0), trie.fuzzyPrefixMatches("phnum penh", 1, 5))
+    }
+}